@@ -0,0 +1,30 @@
+#version 460 core
+
+// these are the variables that the SpriteBatch stores for every vertex
+// (they're all interleaved in one buffer - check the SpriteBatch class)
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec3 color;
+layout(location = 2) in vec2 textureCoord;
+// how this vertex should be drawn (check the SHAPE_ numbers in the Mesh class)
+layout(location = 3) in float shape;
+
+// these are the output variables which are output to the Fragment Shader
+out vec3 passColor;
+out vec2 passTextureCoord;
+flat out int passShape;
+
+// the view and projection matrices (the same for everything drawn in a frame)
+// come from one uniform buffer - check the CameraBuffer class
+layout(std140, row_major, binding = 0) uniform Camera {
+	mat4 view;
+	mat4 projection;
+};
+
+void main() {
+	// the positions are already where they should be in the world, so there
+	// is no model matrix here
+	gl_Position = projection * view * vec4(position, 1.0);
+	passColor = color;
+	passTextureCoord = textureCoord;
+	passShape = int(shape + 0.5);
+}
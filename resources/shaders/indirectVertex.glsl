@@ -0,0 +1,44 @@
+#version 460 core
+
+// these are the variables that every mesh has in the IndirectRenderer's VBO
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec3 color;
+layout(location = 2) in vec2 textureCoord;
+
+// these are the output variables which are output to the Fragment Shader
+out vec3 passColor;
+out vec2 passTextureCoord;
+flat out int passShape;
+
+// the view and projection matrices (the same for everything drawn in a frame)
+// come from one uniform buffer - check the CameraBuffer class
+layout(std140, row_major, binding = 0) uniform Camera {
+	mat4 view;
+	mat4 projection;
+};
+
+// the data for one draw (check the IndirectRenderer class)
+struct Draw {
+	mat4 model;
+	// x is the shape (check the SHAPE_ numbers in the Mesh class) and the rest
+	// is just padding
+	vec4 info;
+};
+
+// the data for every draw, one after the other
+layout(std430, row_major, binding = 1) readonly buffer Draws {
+	Draw draws[];
+};
+
+// where the draws of the current call start in the draws[] array
+uniform int firstDraw;
+
+void main() {
+	// gl_DrawID is which draw of the current call this vertex is part of
+	Draw draw = draws[firstDraw + gl_DrawID];
+
+	gl_Position = projection * view * draw.model * vec4(position, 1.0);
+	passColor = color;
+	passTextureCoord = textureCoord;
+	passShape = int(draw.info.x + 0.5);
+}
@@ -0,0 +1,40 @@
+#version 460 core
+
+// these are the variables that we've stored in the mesh's VAO
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec3 color;
+layout(location = 2) in vec2 textureCoord;
+
+// these are the variables that are different for every instance (check the
+// InstanceBuffer class). A vertex at (x, y) in the mesh ends up at
+// instanceOrigin + x * instanceAxisX + y * instanceAxisY
+layout(location = 3) in vec3 instanceOrigin;
+layout(location = 4) in vec3 instanceAxisX;
+layout(location = 5) in vec3 instanceAxisY;
+layout(location = 6) in vec3 instanceColor;
+// how the instance should be drawn (check the SHAPE_ numbers in the Mesh class)
+layout(location = 7) in float instanceShape;
+// the region of the texture the instance uses: a texture coordinate (u, v) of
+// the mesh ends up at instanceUV.xy + (u, v) * instanceUV.zw
+layout(location = 8) in vec4 instanceUV;
+
+// these are the output variables which are output to the Fragment Shader
+out vec3 passColor;
+out vec2 passTextureCoord;
+flat out int passShape;
+
+// the view and projection matrices (the same for everything drawn in a frame)
+// come from one uniform buffer - check the CameraBuffer class
+layout(std140, row_major, binding = 0) uniform Camera {
+	mat4 view;
+	mat4 projection;
+};
+
+void main() {
+	vec3 worldPosition = instanceOrigin + (position.x * instanceAxisX) + (position.y * instanceAxisY)
+			+ vec3(0.0, 0.0, position.z);
+	gl_Position = projection * view * vec4(worldPosition, 1.0);
+	passColor = color * instanceColor;
+	passTextureCoord = instanceUV.xy + (textureCoord * instanceUV.zw);
+	passShape = int(instanceShape + 0.5);
+}
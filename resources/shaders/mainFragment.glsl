@@ -4,7 +4,9 @@
 // Fragment Shader
 in vec3 passColor;
 in vec2 passTextureCoord;
-in float shouldBeTextured;
+// how the pixel should be drawn: 0 is a solid color, 1 is the texture, and 2
+// is a round shape (these match the SHAPE_ numbers in the Mesh class)
+flat in int passShape;
 
 // this is the color that the GPU should render the pixel in
 out vec4 outColor;
@@ -12,13 +14,37 @@ out vec4 outColor;
 // the texture which we are loading in
 uniform sampler2D tex;
 
+// the signed distance (in pixels) from a point to the edge of a box with
+// rounded corners that is centered on (0, 0). It's negative inside the box
+float roundedBoxDistance(vec2 point, vec2 halfSize, float radius) {
+	vec2 q = abs(point) - (halfSize - radius);
+	return length(max(q, 0.0)) + min(max(q.x, q.y), 0.0) - radius;
+}
+
 void main() {
-	// the output color (either a regular color or a texture)
-	if (shouldBeTextured == 1) {
+	// the output color (either a regular color, a texture, or a round shape)
+	if (passShape == 1) {
 		// this will output the correct color of the texture for the given
 		// coordinate
 		outColor = texture(tex, passTextureCoord);
+	} else if (passShape == 2) {
+		// the texture coordinates go from 0 to 1 across the quad, so fwidth()
+		// (how much they change from one pixel to the next) tells us how big
+		// the quad is in pixels. That lets the distance be measured in pixels
+		vec2 pixelSize = max(fwidth(passTextureCoord), vec2(1e-6));
+		vec2 halfSize = 0.5 / pixelSize;
+		vec2 point = (passTextureCoord - 0.5) / pixelSize;
+
+		// round the corners as much as possible (a square becomes a circle)
+		float distance = roundedBoxDistance(point, halfSize, min(halfSize.x, halfSize.y));
+
+		// the edge fades out over one pixel, which smooths it out
+		float alpha = clamp(0.5 - distance, 0.0, 1.0);
+		if (alpha <= 0.0) {
+			discard;
+		}
+		outColor = vec4(passColor, alpha);
 	} else {
 		outColor = vec4(passColor, 1.0f);
 	}
-}
\ No newline at end of file
+}
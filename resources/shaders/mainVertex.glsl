@@ -1,29 +1,32 @@
 #version 460 core
 
 // these are the variables that we've stored in the VAO
-// they must be accessed in the order of the location that we've stored them in
-// the VAO
-in vec3 position;
-in vec3 color;
-in vec2 textureCoord;
+// their locations must match the order of the attributes in the mesh's
+// VertexLayout
+layout(location = 0) in vec3 position;
+layout(location = 1) in vec3 color;
+layout(location = 2) in vec2 textureCoord;
 
 // these are the output variables which are output to the Fragment Shader
 out vec3 passColor;
 out vec2 passTextureCoord;
-out float shouldBeTextured;
+flat out int passShape;
 
 // the uniform that helps scale the texture onto/with the mesh
 uniform mat4 model;
-// the uniform that deals with the camera
-uniform mat4 view;
-// the uniform that helps the projection work (the projection matrix)
-uniform mat4 projection;
-// the uniform that specifies if a texture should be used or not
-uniform int isTextured;
+// the view and projection matrices (the same for everything drawn in a frame)
+// come from one uniform buffer - check the CameraBuffer class
+layout(std140, row_major, binding = 0) uniform Camera {
+	mat4 view;
+	mat4 projection;
+};
+// the uniform that specifies how the mesh should be drawn (check the SHAPE_
+// numbers in the Mesh class)
+uniform int shape;
 
 void main() {
 	gl_Position = projection * view * model * vec4(position, 1.0);
 	passColor = color;
 	passTextureCoord = textureCoord;
-	shouldBeTextured = isTextured;
+	passShape = shape;
 }
\ No newline at end of file
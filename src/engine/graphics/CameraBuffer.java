@@ -0,0 +1,133 @@
+/*
+ * the CameraBuffer class
+ *
+ * this class holds the view and projection matrices in a uniform buffer object
+ * (a UBO) that every shader can read from
+ *
+ * the view and projection matrices are the same for everything drawn in a
+ * frame. Before, every shader had its own "view" and "projection" uniforms,
+ * and they were set over and over again (for every object, or every time the
+ * shader changed). Now they're written into this one buffer at most once per
+ * frame, and every shader reads them from the "Camera" block:
+ *
+ * layout(std140, row_major, binding = 0) uniform Camera { mat4 view; mat4
+ * projection; };
+ *
+ * std140 is a layout where OpenGL promises exactly where everything in the
+ * block is (so we can just write the floats in order). row_major matches the
+ * way the Matrix4f class stores its elements (the same reason the matrices are
+ * transposed when they're uploaded as normal uniforms)
+ *
+ * the buffer is only written when the camera moved or the projection changed
+ * (when the window is resized), so calling update() more than once a frame
+ * doesn't cost anything
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.system.MemoryUtil;
+
+import engine.io.Window;
+import engine.maths.Matrix4f;
+import engine.maths.Vector3f;
+import engine.objects.Camera;
+import engine.utils.FrameStats;
+
+public class CameraBuffer {
+    // the binding point that the "Camera" block in the shaders uses
+    public static final int BINDING = 0;
+
+    // the size of the block: two 4x4 matrices of floats
+    private static final int FLOATS = 32;
+
+    // the UBO (0 if it hasn't been created)
+    private static int ubo;
+
+    // the data on the CPU (outside of the Java heap), ready to be uploaded
+    private static FloatBuffer data;
+
+    /*
+     * what was last written into the buffer
+     *
+     * a new projection matrix is made whenever the window is resized, so only
+     * checking whether it's the same object is enough
+     */
+    private static float[] lastCamera = new float[6];
+    private static Matrix4f lastProjection;
+
+    /*
+     * create the UBO and attach it to its binding point
+     *
+     * this has to happen after the window is created (and before anything is
+     * drawn)
+     */
+    public static void create() {
+	data = MemoryUtil.memAllocFloat(FLOATS);
+
+	ubo = GL15.glGenBuffers();
+	GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, ubo);
+	GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, (long) FLOATS * Float.BYTES, GL15.GL_DYNAMIC_DRAW);
+	GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+
+	/*
+	 * the binding point remembers the buffer, so this only has to be done
+	 * once
+	 */
+	GL30.glBindBufferBase(GL31.GL_UNIFORM_BUFFER, BINDING, ubo);
+
+	lastProjection = null;
+    }
+
+    /*
+     * write the camera's view matrix and the window's projection matrix into
+     * the UBO (only if either of them has changed since the last time)
+     */
+    public static void update(Camera camera, Window window) {
+	if (ubo == 0) {
+	    throw new IllegalStateException("CameraBuffer.update() was called before CameraBuffer.create()");
+	}
+
+	Vector3f position = camera.getPosition(), rotation = camera.getRotation();
+	Matrix4f projection = window.getProjectionMatrix();
+	if (projection == lastProjection && lastCamera[0] == position.getX() && lastCamera[1] == position.getY()
+		&& lastCamera[2] == position.getZ() && lastCamera[3] == rotation.getX()
+		&& lastCamera[4] == rotation.getY() && lastCamera[5] == rotation.getZ()) {
+	    return;
+	}
+
+	// the view matrix goes first, and then the projection matrix
+	Matrix4f.view(position, rotation).store(data, 0);
+	projection.store(data, 16);
+
+	GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, ubo);
+	GL15.glBufferSubData(GL31.GL_UNIFORM_BUFFER, 0, data);
+	GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+	FrameStats.countUniformUpload();
+
+	lastCamera[0] = position.getX();
+	lastCamera[1] = position.getY();
+	lastCamera[2] = position.getZ();
+	lastCamera[3] = rotation.getX();
+	lastCamera[4] = rotation.getY();
+	lastCamera[5] = rotation.getZ();
+	lastProjection = projection;
+    }
+
+    // delete the UBO to free up system resources
+    public static void destroy() {
+	GL15.glDeleteBuffers(ubo);
+	ubo = 0;
+
+	if (data != null) {
+	    MemoryUtil.memFree(data);
+	    data = null;
+	}
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * the Framebuffer class
+ *
+ * this class is a framebuffer object (an FBO) - something that can be drawn
+ * into instead of the window
+ *
+ * while the framebuffer is bound, everything that's drawn ends up in its color
+ * texture (and its depth buffer) instead of on the screen. The headless mode of
+ * the Window class draws everything into one of these, since there is no
+ * window to draw into
+ *
+ * what was drawn can be read back to the CPU with readPixels() (or saved as a
+ * PNG with save()). Reading back makes the CPU wait for the GPU to finish the
+ * frame, so it should only be done every now and then
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL14;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.stb.STBImageWrite;
+import org.lwjgl.system.MemoryUtil;
+
+public class Framebuffer {
+    // the size of the framebuffer (in pixels)
+    private int width, height;
+
+    // the FBO, the texture the colors go into, and the depth buffer
+    private int fbo, colorTexture, depthBuffer;
+
+    /*
+     * where save() reads the pixels into (made once, so saving a frame doesn't
+     * allocate any memory)
+     */
+    private ByteBuffer pixels;
+
+    // the constructor
+    public Framebuffer(int width, int height) {
+	this.width = width;
+	this.height = height;
+    }
+
+    /*
+     * create the framebuffer
+     *
+     * this returns false if the driver can't draw into it (in which case it
+     * shouldn't be used)
+     */
+    public boolean create() {
+	colorTexture = GL11.glGenTextures();
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, colorTexture);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+	GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE,
+		(ByteBuffer) null);
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+
+	/*
+	 * the depth buffer is never read, so it can be a renderbuffer (which the
+	 * driver can store however it wants)
+	 */
+	depthBuffer = GL30.glGenRenderbuffers();
+	GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, depthBuffer);
+	GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL14.GL_DEPTH_COMPONENT24, width, height);
+	GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, 0);
+
+	fbo = GL30.glGenFramebuffers();
+	GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, fbo);
+	GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL11.GL_TEXTURE_2D, colorTexture,
+		0);
+	GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_ATTACHMENT, GL30.GL_RENDERBUFFER,
+		depthBuffer);
+
+	pixels = MemoryUtil.memAlloc(width * height * 4);
+
+	int status = GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER);
+	GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+	if (status != GL30.GL_FRAMEBUFFER_COMPLETE) {
+	    System.err.println("ERROR: the framebuffer is not complete (status " + status + ")");
+	    return false;
+	}
+	return true;
+    }
+
+    // draw into the framebuffer (instead of the window)
+    public void bind() {
+	GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, fbo);
+	GL11.glViewport(0, 0, width, height);
+    }
+
+    // draw into the window again
+    public void unbind() {
+	GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+    }
+
+    /*
+     * copy what was drawn into the given buffer (RGBA, 4 bytes per pixel, with
+     * the bottom row first like OpenGL does it)
+     *
+     * the buffer has to have room for width * height * 4 bytes
+     */
+    public void readPixels(ByteBuffer pixels) {
+	GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, fbo);
+	GL11.glPixelStorei(GL11.GL_PACK_ALIGNMENT, 1);
+	GL11.glReadPixels(0, 0, width, height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, pixels);
+	GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, 0);
+    }
+
+    /*
+     * save what was drawn as a PNG file
+     *
+     * this returns false if the file couldn't be written
+     */
+    public boolean save(String path) {
+	readPixels(pixels);
+
+	// OpenGL gives us the bottom row first, but PNG files start at the top
+	STBImageWrite.stbi_flip_vertically_on_write(true);
+	boolean saved = STBImageWrite.stbi_write_png(path, width, height, 4, pixels, width * 4);
+
+	if (!saved) {
+	    System.err.println("Can't save the frame to " + path);
+	}
+	return saved;
+    }
+
+    // delete the framebuffer to free up system resources
+    public void destroy() {
+	GL30.glDeleteFramebuffers(fbo);
+	GL30.glDeleteRenderbuffers(depthBuffer);
+	GL11.glDeleteTextures(colorTexture);
+	MemoryUtil.memFree(pixels);
+	pixels = null;
+	fbo = 0;
+	depthBuffer = 0;
+	colorTexture = 0;
+    }
+
+    // the following methods are getters
+    public int getWidth() {
+	return width;
+    }
+
+    public int getHeight() {
+	return height;
+    }
+
+    public int getColorTexture() {
+	return colorTexture;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * the GLState class
+ *
+ * this class remembers what is currently bound in OpenGL (the shader program,
+ * the texture, and the VAO) so that we don't tell OpenGL to bind something
+ * that is already bound
+ *
+ * OpenGL doesn't check for that itself - binding the same thing twice still
+ * costs a call into the driver. So instead of calling OpenGL directly, the
+ * render queue calls the methods here, and they only call OpenGL if something
+ * actually changes
+ *
+ * NOTE: anything that binds things without going through this class (like the
+ * SpriteBatch) makes what we remember wrong. So reset() must be called before
+ * using this class after anything else has touched OpenGL
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+import engine.utils.FrameStats;
+
+public class GLState {
+    /*
+     * what is currently bound (-1 means that we don't know, so the next bind
+     * will always go through to OpenGL)
+     */
+    private static int program = -1, texture = -1, vertexArray = -1;
+
+    // forget everything that we remember (check the note at the top)
+    public static void reset() {
+	program = -1;
+	texture = -1;
+	vertexArray = -1;
+    }
+
+    /*
+     * the following methods bind something only if it isn't already bound
+     *
+     * they return true if something actually changed
+     */
+    public static boolean useProgram(int id) {
+	if (program == id) {
+	    FrameStats.countStateChangeAvoided();
+	    return false;
+	}
+	GL20.glUseProgram(id);
+	FrameStats.countStateChange();
+	program = id;
+	return true;
+    }
+
+    // this binds a 2D texture to whichever texture unit is active
+    public static boolean bindTexture(int id) {
+	if (texture == id) {
+	    FrameStats.countStateChangeAvoided();
+	    return false;
+	}
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, id);
+	FrameStats.countStateChange();
+	texture = id;
+	return true;
+    }
+
+    public static boolean bindVertexArray(int id) {
+	if (vertexArray == id) {
+	    FrameStats.countStateChangeAvoided();
+	    return false;
+	}
+	GL30.glBindVertexArray(id);
+	FrameStats.countStateChange();
+	vertexArray = id;
+	return true;
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * the IndirectRenderer class
+ *
+ * this class draws a whole set of objects with as little work on the CPU as
+ * possible, no matter how many objects there are
+ *
+ * instead of every mesh having its own VAO and buffers, the vertices and
+ * indices of every mesh are copied into one big VBO and one big IBO (each mesh
+ * gets its own part of them). Because everything is in the same buffers, all
+ * the objects can be drawn with one call to glMultiDrawElementsIndirect
+ *
+ * glMultiDrawElementsIndirect reads its draws from a buffer on the GPU (the
+ * "indirect buffer"). Each draw command says which indices to draw and where
+ * the mesh's vertices start - it's what one glDrawElements call would have
+ * said. The commands only change when the set of objects changes, so normally
+ * they're not touched at all
+ *
+ * things that would have been uniforms (the model matrix and the shape) can't
+ * change between the draws of one call, so they're kept in a shader storage
+ * buffer (an SSBO) with one entry per draw. The vertex shader finds its entry
+ * with gl_DrawID (which draw of the call it's in). An object's entry is only
+ * written again when its model matrix changes (check GameObject.getVersion())
+ *
+ * the renderer doesn't look at every object every frame to find out what
+ * changed. Whoever moves an object (or gives its mesh new vertices) tells the
+ * renderer with markChanged(), and only those objects are checked in render()
+ *
+ * every texture needs its own call, so the objects are grouped by texture.
+ * Everything in the TextureAtlas uses the same texture, so Pong is drawn with
+ * one call. The color of each vertex and its position in the atlas are already
+ * in the vertices, so they aren't part of the per-draw data
+ *
+ * the set of objects is given once (in create()). If a mesh's vertices are
+ * replaced (by Mesh.setVertices()), they are copied into the big VBO again. If
+ * there are more of them than the mesh's part of the VBO has room for, all the
+ * meshes are packed into the shared buffers again first
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL40;
+import org.lwjgl.opengl.GL43;
+import org.lwjgl.system.MemoryUtil;
+
+import engine.io.Window;
+import engine.objects.Camera;
+import engine.objects.GameObject;
+import engine.utils.FrameStats;
+
+public class IndirectRenderer {
+    // the binding point of the per-draw data (the "Draws" block in indirectVertex.glsl)
+    public static final int DRAWS_BINDING = 1;
+
+    /*
+     * how many floats make up the data for one draw: the model matrix (16) and
+     * the shape and padding (4)
+     */
+    private static final int FLOATS_PER_DRAW = 20;
+
+    /*
+     * how many ints make up one draw command: the number of indices, the
+     * number of instances, the first index, the base vertex, and the base
+     * instance
+     */
+    private static final int INTS_PER_COMMAND = 5;
+
+    // the shader (this should be the indirectVertex and mainFragment shaders)
+    private Shader shader;
+
+    // the window (for the projection matrix)
+    private Window window;
+
+    // the uniform that says where the current call's draws start in the SSBO
+    private Uniform firstDraw;
+
+    // the VAO, the shared VBO and IBO, the indirect buffer, and the SSBO
+    private int vao, vbo, ibo, commandBuffer, drawBuffer;
+
+    /*
+     * the objects, in the order they're drawn (grouped by texture), and where
+     * each one's vertices start in the shared VBO
+     */
+    private GameObject[] objects;
+    private int[] baseVertices;
+
+    // how many vertices each mesh has room for in the shared VBO
+    private int[] slotSizes;
+
+    // where each object is in "objects" (to find it again in markChanged())
+    private IdentityHashMap<GameObject, Integer> indices = new IdentityHashMap<GameObject, Integer>();
+
+    /*
+     * the objects that might have changed since the last frame (by their
+     * place in "objects"), and whether or not each object is already in the
+     * list
+     */
+    private int[] changed;
+    private int changedCount;
+    private boolean[] isChanged;
+
+    /*
+     * the vertex array and the model matrix version that were last copied to
+     * the GPU for each object (to notice when they change)
+     */
+    private Vertex[][] uploadedVertices;
+    private int[] uploadedVersions;
+
+    // the textures, and where each one's objects start and how many there are
+    private int[] groupTextures, groupFirsts, groupCounts;
+    private int groupCount;
+
+    // the per-draw data on the CPU, and a buffer to write a mesh's vertices into
+    private FloatBuffer drawData, vertexStaging;
+
+    // the constructor
+    public IndirectRenderer(Window window, Shader shader) {
+	this.window = window;
+	this.shader = shader;
+
+	firstDraw = shader.getUniform("firstDraw");
+    }
+
+    /*
+     * copy every object's mesh into the shared buffers and make the draw
+     * commands
+     *
+     * the meshes don't need to have been created (the materials are created
+     * here if they haven't been)
+     */
+    public void create(GameObject[] objects) {
+	// group the objects by texture (untextured objects use texture 0)
+	this.objects = objects.clone();
+	for (int i = 0; i < this.objects.length; i++) {
+	    Material material = this.objects[i].getMesh().getMaterial();
+	    if (material != null) {
+		material.create();
+	    }
+	}
+	Arrays.sort(this.objects, (a, b) -> Integer.compare(textureOf(a), textureOf(b)));
+
+	int count = this.objects.length;
+	baseVertices = new int[count];
+	slotSizes = new int[count];
+	uploadedVertices = new Vertex[count][];
+	uploadedVersions = new int[count];
+	groupTextures = new int[count];
+	groupFirsts = new int[count];
+	groupCounts = new int[count];
+	changed = new int[count];
+	isChanged = new boolean[count];
+	indices.clear();
+	for (int i = 0; i < count; i++) {
+	    indices.put(this.objects[i], i);
+	}
+
+	pack();
+
+	// the per-draw data (written for real the first time render() is called)
+	drawData = MemoryUtil.memCallocFloat(Math.max(1, count) * FLOATS_PER_DRAW);
+	drawBuffer = GL15.glGenBuffers();
+	GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, drawBuffer);
+	GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, drawData, GL15.GL_DYNAMIC_DRAW);
+	GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+
+	// everything has to be sent the first time
+	for (int i = 0; i < count; i++) {
+	    markChanged(i);
+	}
+    }
+
+    /*
+     * tell the renderer that an object moved (or that its mesh was given new
+     * vertices), so that it's sent to the GPU again in the next render()
+     *
+     * objects that weren't given to create() are ignored
+     */
+    public void markChanged(GameObject object) {
+	Integer index = indices.get(object);
+	if (index != null) {
+	    markChanged(index);
+	}
+    }
+
+    // add the object at "index" to the list of changed objects (if it isn't already in it)
+    private void markChanged(int index) {
+	if (!isChanged[index]) {
+	    isChanged[index] = true;
+	    changed[changedCount++] = index;
+	}
+    }
+
+    /*
+     * copy every mesh's indices into the shared IBO, give every mesh room for
+     * its vertices in the shared VBO, and make the draw commands (and the
+     * groups)
+     *
+     * the vertices themselves are copied in by render() (every object's
+     * uploaded vertices are forgotten here, so that they all are)
+     */
+    private void pack() {
+	int count = objects.length;
+
+	// work out where every mesh goes in the shared buffers
+	int totalVertices = 0, totalIndices = 0, largestMesh = 0;
+	for (int i = 0; i < count; i++) {
+	    Mesh mesh = objects[i].getMesh();
+	    baseVertices[i] = totalVertices;
+	    slotSizes[i] = mesh.getVertices().length;
+	    uploadedVertices[i] = null;
+	    totalVertices += mesh.getVertices().length;
+	    totalIndices += mesh.getIndices().length;
+	    largestMesh = Math.max(largestMesh, mesh.getVertices().length);
+	}
+
+	vao = GL30.glGenVertexArrays();
+	GL30.glBindVertexArray(vao);
+
+	/*
+	 * the shared VBO (the vertices are copied in below, and again whenever a
+	 * mesh's vertices change)
+	 */
+	vbo = GL15.glGenBuffers();
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+	GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) totalVertices * Mesh.LAYOUT.getStride(), GL15.GL_DYNAMIC_DRAW);
+	Mesh.LAYOUT.apply();
+	vertexStaging = MemoryUtil.memAllocFloat(Math.max(1, largestMesh) * Mesh.LAYOUT.getFloatsPerVertex());
+
+	// the shared IBO and the draw commands (one command per object)
+	IntBuffer indices = MemoryUtil.memAllocInt(Math.max(1, totalIndices));
+	IntBuffer commands = MemoryUtil.memAllocInt(Math.max(1, count) * INTS_PER_COMMAND);
+	groupCount = 0;
+	Arrays.fill(groupCounts, 0);
+	for (int i = 0; i < count; i++) {
+	    int[] meshIndices = objects[i].getMesh().getIndices();
+	    commands.put(meshIndices.length); // how many indices to draw
+	    commands.put(1); // how many instances (just one)
+	    commands.put(indices.position()); // the first index
+	    commands.put(baseVertices[i]); // the base vertex (where the mesh's vertices start)
+	    commands.put(0); // the base instance (not used)
+	    indices.put(meshIndices);
+
+	    // start a new group whenever the texture changes
+	    int texture = textureOf(objects[i]);
+	    if (groupCount == 0 || groupTextures[groupCount - 1] != texture) {
+		groupTextures[groupCount] = texture;
+		groupFirsts[groupCount] = i;
+		groupCount++;
+	    }
+	    groupCounts[groupCount - 1]++;
+	}
+	indices.flip();
+	commands.flip();
+
+	// the VAO remembers the IBO that is bound while it's bound
+	ibo = GL15.glGenBuffers();
+	GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ibo);
+	GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indices, GL15.GL_STATIC_DRAW);
+	MemoryUtil.memFree(indices);
+
+	GL30.glBindVertexArray(0);
+	GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+	commandBuffer = GL15.glGenBuffers();
+	GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+	GL15.glBufferData(GL40.GL_DRAW_INDIRECT_BUFFER, commands, GL15.GL_STATIC_DRAW);
+	GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 0);
+	MemoryUtil.memFree(commands);
+    }
+
+    /*
+     * pack all the meshes into new shared buffers (for when a mesh has more
+     * vertices than it has room for)
+     *
+     * every object has to be sent again afterwards. The order of the objects
+     * doesn't change, so the per-draw data stays where it is
+     */
+    private void repack() {
+	GL15.glDeleteBuffers(vbo);
+	GL15.glDeleteBuffers(ibo);
+	GL15.glDeleteBuffers(commandBuffer);
+	GL30.glDeleteVertexArrays(vao);
+	MemoryUtil.memFree(vertexStaging);
+
+	pack();
+	for (int i = 0; i < objects.length; i++) {
+	    markChanged(i);
+	}
+    }
+
+    /*
+     * draw all the objects
+     *
+     * anything that changed since the last frame (a mesh's vertices or an
+     * object's model matrix) is sent to the GPU first. Only the objects given
+     * to markChanged() are checked
+     */
+    public void render(Camera camera) {
+	// pack everything again if a mesh doesn't fit in its part of the VBO anymore
+	for (int k = 0; k < changedCount; k++) {
+	    int i = changed[k];
+	    if (objects[i].getMesh().getVertices().length > slotSizes[i]) {
+		repack();
+		break;
+	    }
+	}
+
+	// send any meshes that have new vertices
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+	for (int k = 0; k < changedCount; k++) {
+	    int i = changed[k];
+	    Mesh mesh = objects[i].getMesh();
+	    if (mesh.getVertices() != uploadedVertices[i]) {
+		vertexStaging.clear();
+		mesh.writeVertices(vertexStaging);
+		GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, (long) baseVertices[i] * Mesh.LAYOUT.getStride(),
+			vertexStaging);
+		uploadedVertices[i] = mesh.getVertices();
+	    }
+	}
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+	// update the per-draw data of any object whose model matrix changed
+	boolean drawDataChanged = false;
+	for (int k = 0; k < changedCount; k++) {
+	    int i = changed[k];
+	    GameObject object = objects[i];
+	    int version = object.getVersion();
+	    if (version != uploadedVersions[i]) {
+		int offset = i * FLOATS_PER_DRAW;
+		object.getModelMatrix().store(drawData, offset);
+		drawData.put(offset + 16, object.getMesh().getShape());
+		uploadedVersions[i] = version;
+		drawDataChanged = true;
+	    }
+	    isChanged[i] = false;
+	}
+	changedCount = 0;
+	if (drawDataChanged) {
+	    GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, drawBuffer);
+	    GL15.glBufferSubData(GL43.GL_SHADER_STORAGE_BUFFER, 0, drawData);
+	    GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+	}
+
+	// set up everything that is the same for every call
+	CameraBuffer.update(camera, window);
+	shader.bind();
+	GL30.glBindVertexArray(vao);
+	GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, commandBuffer);
+	GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, DRAWS_BINDING, drawBuffer);
+	GL13.glActiveTexture(GL13.GL_TEXTURE0);
+
+	// one call for every texture
+	for (int g = 0; g < groupCount; g++) {
+	    GL11.glBindTexture(GL11.GL_TEXTURE_2D, groupTextures[g]);
+	    firstDraw.set(groupFirsts[g]);
+
+	    /*
+	     * the third argument is where in the indirect buffer the group's
+	     * commands start (in bytes), and the last argument is how far apart
+	     * the commands are (0 means that they're right next to each other)
+	     */
+	    GL43.glMultiDrawElementsIndirect(GL11.GL_TRIANGLES, GL11.GL_UNSIGNED_INT,
+		    (long) groupFirsts[g] * INTS_PER_COMMAND * Integer.BYTES, groupCounts[g], 0);
+	    FrameStats.countDrawCall();
+	}
+
+	// unbind everything
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+	GL15.glBindBuffer(GL40.GL_DRAW_INDIRECT_BUFFER, 0);
+	GL30.glBindVertexArray(0);
+	shader.unbind();
+    }
+
+    // the texture an object uses (0 if it doesn't use one)
+    private static int textureOf(GameObject object) {
+	Material material = object.getMesh().getMaterial();
+	return (material == null) ? 0 : material.getTextureID();
+    }
+
+    /*
+     * delete everything the renderer created to free up system resources
+     *
+     * the objects' meshes aren't touched (they still have to be destroyed by
+     * themselves)
+     */
+    public void destroy() {
+	GL15.glDeleteBuffers(vbo);
+	GL15.glDeleteBuffers(ibo);
+	GL15.glDeleteBuffers(commandBuffer);
+	GL15.glDeleteBuffers(drawBuffer);
+	GL30.glDeleteVertexArrays(vao);
+
+	if (drawData != null) {
+	    MemoryUtil.memFree(drawData);
+	    MemoryUtil.memFree(vertexStaging);
+	    drawData = null;
+	    vertexStaging = null;
+	}
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * the InstanceBuffer class
+ *
+ * this class holds the data for drawing the same mesh lots of times with one
+ * draw call (this is called instanced rendering)
+ *
+ * every instance is one copy of the mesh. Instead of having its own vertices,
+ * each instance just says where its copy should go (its transform) and what
+ * color it should be. The vertex shader then moves the mesh's vertices to the
+ * right place for each instance
+ *
+ * the texture coordinates of the mesh are also moved into a region of the
+ * texture (so that instances can use sprites from the TextureAtlas): a texture
+ * coordinate (u, v) ends up at uvOrigin + (u, v) * uvSize
+ *
+ * the transform of an instance is stored as an origin and two axes: a vertex
+ * at (x, y) in the mesh ends up at origin + x * axisX + y * axisY. For a unit
+ * square (top left at (0, 0) and bottom right at (1, -1)) that means the origin
+ * is the top left corner of the instance, axisX goes from the top left to the
+ * top right corner, and axisY goes from the bottom left to the top left corner
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.system.MemoryUtil;
+
+import engine.maths.Matrix4f;
+import engine.maths.Vector3f;
+import engine.objects.GameObject;
+
+public class InstanceBuffer {
+    /*
+     * how the data for one instance is laid out: the origin (3), axisX (3),
+     * axisY (3), the color (3), the shape it should be drawn as (1) (check the
+     * SHAPE_ numbers in the Mesh class), and its texture region (4 - the
+     * uvOrigin and the uvSize)
+     */
+    public static final VertexLayout LAYOUT = new VertexLayout(3, 3, 3, 3, 1, 4);
+    public static final int FLOATS_PER_INSTANCE = LAYOUT.getFloatsPerVertex();
+
+    /*
+     * the first attribute location used for the instance data (the mesh uses
+     * locations 0, 1, and 2)
+     */
+    public static final int FIRST_LOCATION = 3;
+
+    // the VBO that holds the instance data on the GPU
+    private int vbo;
+
+    /*
+     * the instance data on the CPU (outside of the Java heap), waiting to be
+     * sent to the GPU
+     */
+    private FloatBuffer data;
+
+    // vectors to hold corners that had to be transformed
+    private Vector3f topLeft = new Vector3f(0, 0, 0), bottomLeft = new Vector3f(0, 0, 0),
+	    topRight = new Vector3f(0, 0, 0);
+
+    /*
+     * the constructor
+     *
+     * "capacity" is how many instances there is room for at first (the buffer
+     * grows if more are added)
+     */
+    public InstanceBuffer(int capacity) {
+	data = MemoryUtil.memAllocFloat(capacity * FLOATS_PER_INSTANCE);
+    }
+
+    // create the VBO on the GPU
+    public void create() {
+	vbo = GL15.glGenBuffers();
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+	GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) data.capacity() * Float.BYTES, GL15.GL_STREAM_DRAW);
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /*
+     * hook the instance data up to a mesh's VAO
+     *
+     * after this, drawing the mesh with an instanced draw call will read one
+     * set of instance data for every copy of the mesh. This only needs to be
+     * done once for each mesh
+     */
+    public void attach(Mesh mesh) {
+	GL30.glBindVertexArray(mesh.getVAO());
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+
+	LAYOUT.apply(FIRST_LOCATION);
+	for (int i = 0; i < LAYOUT.getAttributeCount(); i++) {
+	    /*
+	     * a divisor of 1 means that this attribute moves forward once per
+	     * instance (instead of once per vertex)
+	     */
+	    GL33.glVertexAttribDivisor(FIRST_LOCATION + i, 1);
+	}
+
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+	GL30.glBindVertexArray(0);
+    }
+
+    // remove all the instances (to start filling the buffer for a new frame)
+    public void clear() {
+	data.clear();
+    }
+
+    /*
+     * add one instance (that uses the whole texture, if it has one)
+     */
+    public void add(Vector3f origin, Vector3f axisX, Vector3f axisY, Vector3f color, int shape) {
+	// make the buffer bigger if it's full
+	if (data.remaining() < FLOATS_PER_INSTANCE) {
+	    data = MemoryUtil.memRealloc(data, data.capacity() * 2);
+	}
+
+	data.put(origin.getX()).put(origin.getY()).put(origin.getZ());
+	data.put(axisX.getX()).put(axisX.getY()).put(axisX.getZ());
+	data.put(axisY.getX()).put(axisY.getY()).put(axisY.getZ());
+	data.put(color.getX()).put(color.getY()).put(color.getZ());
+	data.put(shape);
+	data.put(0.0f).put(0.0f).put(1.0f).put(1.0f);
+    }
+
+    /*
+     * add an instance that covers the same quad as the given object (so that
+     * a unit square drawn with this instance looks exactly like the object)
+     *
+     * the object's mesh has to be a quad (like the ones made by the Rectangle,
+     * Square, and Circle classes). The whole quad gets the color of its first
+     * vertex
+     */
+    public void add(GameObject object) {
+	Vertex[] vertices = object.getMesh().getVertices();
+	if (vertices.length != 4) {
+	    throw new IllegalArgumentException("only quads can be drawn as instances, but the mesh has "
+		    + vertices.length + " vertices");
+	}
+
+	// the corners of the quad (check the Rectangle and Square classes)
+	Vector3f tl = vertices[0].getPosition(), bl = vertices[1].getPosition(), tr = vertices[3].getPosition();
+	if (!object.isIdentity()) {
+	    Matrix4f transform = object.getModelMatrix();
+	    transform.transformPoint(tl, topLeft);
+	    transform.transformPoint(bl, bottomLeft);
+	    transform.transformPoint(tr, topRight);
+	} else {
+	    topLeft.set(tl.getX(), tl.getY(), tl.getZ());
+	    bottomLeft.set(bl.getX(), bl.getY(), bl.getZ());
+	    topRight.set(tr.getX(), tr.getY(), tr.getZ());
+	}
+
+	// make the buffer bigger if it's full
+	if (data.remaining() < FLOATS_PER_INSTANCE) {
+	    data = MemoryUtil.memRealloc(data, data.capacity() * 2);
+	}
+
+	Vector3f color = vertices[0].getColor();
+	data.put(topLeft.getX()).put(topLeft.getY()).put(topLeft.getZ());
+	data.put(topRight.getX() - topLeft.getX()).put(topRight.getY() - topLeft.getY())
+		.put(topRight.getZ() - topLeft.getZ());
+	data.put(topLeft.getX() - bottomLeft.getX()).put(topLeft.getY() - bottomLeft.getY())
+		.put(topLeft.getZ() - bottomLeft.getZ());
+	data.put(color.getX()).put(color.getY()).put(color.getZ());
+	data.put(object.getMesh().getShape());
+
+	// the region of the texture (a sprite in the atlas only uses its own part)
+	Material material = object.getMesh().getMaterial();
+	float u0 = (material == null) ? 0.0f : material.mapU(0.0f), v0 = (material == null) ? 0.0f : material.mapV(0.0f);
+	float u1 = (material == null) ? 1.0f : material.mapU(1.0f), v1 = (material == null) ? 1.0f : material.mapV(1.0f);
+	data.put(u0).put(v0).put(u1 - u0).put(v1 - v0);
+    }
+
+    /*
+     * send all the instances to the GPU
+     *
+     * the old data is orphaned first (so that we don't have to wait for the
+     * GPU to finish drawing with it)
+     */
+    public void upload() {
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+	GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) data.capacity() * Float.BYTES, GL15.GL_STREAM_DRAW);
+	data.flip();
+	GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, data);
+	// put the buffer back the way it was (so more instances can be added)
+	data.position(data.limit()).limit(data.capacity());
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    // how many instances have been added
+    public int size() {
+	return data.position() / FLOATS_PER_INSTANCE;
+    }
+
+    // delete the VBO and free the data
+    public void destroy() {
+	GL15.glDeleteBuffers(vbo);
+
+	if (data != null) {
+	    MemoryUtil.memFree(data);
+	    data = null;
+	}
+    }
+}
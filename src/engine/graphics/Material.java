@@ -3,27 +3,17 @@
  * 
  * this class holds all the information about textures
  * 
+ * the actual loading of the texture is done by the TextureCache class (or,
+ * if the texture was packed into the TextureAtlas, the material just uses its
+ * region of the atlas). A texture from the TextureCache might still be loading
+ * in the background for a few frames after the material is created
+ * 
  * Aidin Yazdi
  */
 
 package engine.graphics;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.PrintStream;
-
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.newdawn.slick.opengl.Texture;
-import org.newdawn.slick.opengl.TextureLoader;
-
 public class Material {
-    /*
-     * a slick-util texture (slick-util is a library that we have included
-     * separately from LWJGL)
-     */
-    private Texture texture;
-
     // the file path to the texture
     private String path;
 
@@ -33,6 +23,24 @@ public class Material {
     // the texture ID
     private int textureID;
 
+    /*
+     * the material's region of the texture atlas (null if the texture isn't in
+     * the atlas and was loaded by itself)
+     */
+    private TextureAtlas.Region region;
+
+    /*
+     * the material's texture in the TextureCache (null if the texture is in
+     * the atlas)
+     */
+    private TextureCache.Entry texture;
+
+    /*
+     * whether or not this material is currently holding on to its texture in
+     * the TextureCache (so that it's only released once)
+     */
+    private boolean created;
+
     /*
      * the constructor
      * 
@@ -42,46 +50,86 @@ public class Material {
 	this.path = path;
     }
 
-    // set up all the information about the texture
+    /*
+     * set up all the information about the texture
+     * 
+     * the texture itself comes from the TextureCache, so if another material
+     * has already loaded the same file this doesn't load it again - it just
+     * shares the texture that's already on the GPU
+     */
     public void create() {
-	// make it so that this function doesn't output the slick warning
-	PrintStream out = System.out;
-	System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	if (created) {
+	    return;
+	}
 
 	/*
-	 * the first argument is the type of file that will be used to load the
-	 * texture (.png, .jpeg, etc.)
-	 * 
-	 * the last argument can be GL11.GL_NEAREST for more rigid images or
-	 * GL11.GL_LINEAR for images that will be blurred to fit the given mesh
+	 * if the texture was packed into the atlas, just use the atlas (check
+	 * the TextureAtlas class)
 	 */
-	try {
-	    texture = TextureLoader.getTexture(path.split("[.]")[1], Material.class.getResourceAsStream(path),
-		    GL11.GL_NEAREST);
-	    // general information about the texture that we need to set up
-	    width = texture.getWidth();
-	    height = texture.getHeight();
-	    textureID = texture.getTextureID();
-	} catch (IOException e) {
-	    System.err.println("Can't find the texture at " + path);
+	region = TextureAtlas.getRegion(path);
+	if (region != null) {
+	    width = region.getWidth();
+	    height = region.getHeight();
+	    textureID = TextureAtlas.getTextureID();
+	    created = true;
+	    return;
 	}
 
-	// revert System.out function to normal
-	System.setOut(out);
+	/*
+	 * the texture might still be loading in the background, so its size is
+	 * only looked up once it's asked for (the texture ID never changes)
+	 */
+	texture = TextureCache.acquire(path);
+	textureID = texture.getTextureID();
+	created = true;
     }
 
-    // destroy the texture (I think this frees up system resources)
+    /*
+     * let go of the texture (it's only actually deleted once every material
+     * using the same file has let go of it)
+     */
     public void destroy() {
-	GL13.glDeleteTextures(textureID);
+	if (!created) {
+	    return;
+	}
+
+	// the atlas is deleted by itself, so only the cache has to be told
+	if (region == null) {
+	    TextureCache.release(path);
+	}
+	region = null;
+	texture = null;
+	textureID = 0;
+	created = false;
+    }
+
+    /*
+     * the following two methods turn a texture coordinate of the mesh (0 to 1
+     * across the sprite) into a texture coordinate of the actual texture
+     * 
+     * for a texture that was loaded by itself they don't change anything, but
+     * for a sprite in the atlas they move the coordinate into its region
+     */
+    public float mapU(float u) {
+	return (region == null) ? u : region.getU0() + (u * (region.getU1() - region.getU0()));
+    }
+
+    public float mapV(float v) {
+	return (region == null) ? v : region.getV0() + (v * (region.getV1() - region.getV0()));
     }
 
     // the following methods are getters
     public float getWidth() {
-	return width;
+	return (texture == null) ? width : texture.getWidth();
     }
 
     public float getHeight() {
-	return height;
+	return (texture == null) ? height : texture.getHeight();
+    }
+
+    // whether or not the texture has been loaded (so it isn't a placeholder)
+    public boolean isReady() {
+	return created && (texture == null || texture.isReady());
     }
 
     public int getTextureID() {
@@ -91,4 +139,8 @@ public class Material {
     public String getPath() {
 	return path;
     }
-}
\ No newline at end of file
+
+    public TextureAtlas.Region getRegion() {
+	return region;
+    }
+}
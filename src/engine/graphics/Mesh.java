@@ -12,13 +12,34 @@ package engine.graphics;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
-import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
-import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
+import engine.maths.Vector2f;
+import engine.maths.Vector3f;
+
 public class Mesh {
+    // how the data for each vertex is laid out in the VBO
+    public static final VertexLayout LAYOUT = VertexLayout.STANDARD;
+
+    /*
+     * the different shapes that the fragment shader can draw a mesh as (these
+     * numbers must match the ones in mainFragment.glsl)
+     * 
+     * SHAPE_SOLID - every pixel of the mesh is drawn in its color
+     * 
+     * SHAPE_TEXTURED - the mesh is drawn with its texture
+     * 
+     * SHAPE_ROUND - the mesh (which has to be a quad) is drawn with its corners
+     * rounded off as much as possible. A square becomes a circle and a long
+     * rectangle becomes a capsule (a rectangle with round ends). The edge is
+     * worked out for every pixel in the fragment shader, so it's perfectly
+     * smooth no matter how big the quad is on the screen
+     */
+    public static final int SHAPE_SOLID = 0, SHAPE_TEXTURED = 1, SHAPE_ROUND = 2;
+
     // an array of vertices to make up the mesh
     private Vertex[] vertices;
     // an array to keep track of in which order the vertices should be drawn
@@ -30,15 +51,29 @@ public class Mesh {
     /*
      * the VAO (vertex array object) - check my LWJGL notes for more information
      * 
-     * the PBO (positions buffer object)
+     * the VBO (vertex buffer object) - this holds the positions, colors, and
+     * texture coordinates of all the vertices, interleaved (check the
+     * VertexLayout class for more information)
      * 
      * the IBO (indices buffer object)
-     * 
-     * the CBO (color buffer object)
-     * 
-     * the TBO (texture coordinates buffer object)
      */
-    private int vao, pbo, ibo, cbo, tbo;
+    private int vao, vbo, ibo;
+
+    /*
+     * whether or not the IBO is the one shared by all quads (check the
+     * QuadIndexBuffer class). If it is, the mesh doesn't own it, so it mustn't
+     * be deleted with the mesh
+     */
+    private boolean sharedIndices;
+
+    // whether or not the mesh should be drawn as SHAPE_ROUND
+    private boolean rounded;
+
+    /*
+     * whether or not the vertices have been changed since they were last sent
+     * to the GPU (check the update() method for more information)
+     */
+    private boolean dirty;
 
     // the constructor
     public Mesh(Vertex[] vertices, int[] indices, Material material) {
@@ -68,126 +103,137 @@ public class Mesh {
 	// to the GPU
 	GL30.glBindVertexArray(vao);
 
-	// the data that will be stored in the PBO - the position data
-	FloatBuffer positionBuffer = MemoryUtil.memAllocFloat(vertices.length * 3);
 	/*
-	 * this array will temporarily hold the position data so that we can get
-	 * all the vertices first before we store it in positionBuffer
+	 * all the data for every vertex goes in one buffer, one vertex after the
+	 * other (check the VertexLayout class for more information)
 	 */
-	float[] positionData = new float[vertices.length * 3];
-	// now we iterate through all the vertices and store the data
-	for (int i = 0; i < vertices.length; i++) {
-	    /*
-	     * we need to offset everything by 3 when we store to positionData
-	     * because there are 3 components to each vertex
-	     */
-	    positionData[(i * 3)] = vertices[i].getPosition().getX();
-	    positionData[(i * 3) + 1] = vertices[i].getPosition().getY();
-	    positionData[(i * 3) + 2] = vertices[i].getPosition().getZ();
-	}
-	/*
-	 * actually store the position data in the positionBuffer. The data
-	 * needs to be flipped because that's how OpenGL likes it
-	 */
-	positionBuffer.put(positionData).flip();
-
-	// create the PBO - check the source code of the method for more details
-	pbo = storeData(positionBuffer, 0, 3);
+	FloatBuffer vertexBuffer = MemoryUtil.memAllocFloat(vertices.length * LAYOUT.getFloatsPerVertex());
+	writeVertices(vertexBuffer);
 
+	vbo = GL15.glGenBuffers();
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
 	/*
-	 * the following code is for color. It mirrors the code above (which is
-	 * for the PBO) so just check that code for comments
+	 * GL15.GL_DYNAMIC_DRAW is telling OpenGL that we're going to change the
+	 * data every now and then (whenever the mesh moves - check the update()
+	 * method)
 	 */
-	FloatBuffer colorBuffer = MemoryUtil.memAllocFloat(vertices.length * 3);
-	float[] colorData = new float[vertices.length * 3];
-	for (int i = 0; i < vertices.length; i++) {
-	    colorData[(i * 3)] = vertices[i].getColor().getX();
-	    colorData[(i * 3) + 1] = vertices[i].getColor().getY();
-	    colorData[(i * 3) + 2] = vertices[i].getColor().getZ();
-	}
-	colorBuffer.put(colorData).flip();
-	cbo = storeData(colorBuffer, 1, 3);
+	GL15.glBufferData(GL15.GL_ARRAY_BUFFER, vertexBuffer, GL15.GL_DYNAMIC_DRAW);
+	// OpenGL has its own copy of the data now, so ours can be freed
+	MemoryUtil.memFree(vertexBuffer);
 
 	/*
-	 * the following code is for the texture coordinates. It mirrors the
-	 * code above (which is for the PBO) so just check that code for
-	 * comments
+	 * tell OpenGL where the position, color, and texture coordinates are in
+	 * each vertex (this also enables the three attributes). The VAO remembers
+	 * this, so drawing the mesh only takes binding the VAO
 	 */
-	FloatBuffer textureBuffer = MemoryUtil.memAllocFloat(vertices.length * 2);
-	float[] textureData = new float[vertices.length * 2];
-	for (int i = 0; i < vertices.length; i++) {
-	    textureData[(i * 2)] = vertices[i].getTextureCoord().getX();
-	    textureData[(i * 2) + 1] = vertices[i].getTextureCoord().getY();
-	}
-	textureBuffer.put(textureData).flip();
-	tbo = storeData(textureBuffer, 2, 2);
+	LAYOUT.apply();
 
-	/*
-	 * the following portion of the code (for the IBO) mirrors the portion
-	 * of the code for the PBO (except that it uses integers instead of
-	 * floats). So, just check the comments on the PBO section of the code
-	 * for more details
-	 */
-	IntBuffer indicesBuffer = MemoryUtil.memAllocInt(indices.length);
-	indicesBuffer.put(indices).flip();
-	ibo = GL15.glGenBuffers();
 	/*
 	 * GL_ELEMENT_ARRAY_BUFFER tells OpenGL that this isn't a normal array
 	 * of numbers with information that should be rendered - rather it's an
 	 * array of numbers with the order of when OpenGL should render other
 	 * information
+	 * 
+	 * almost every mesh is a quad, and every quad uses the same indices - so
+	 * those all share one IBO. Only other meshes get an IBO of their own
 	 */
+	sharedIndices = QuadIndexBuffer.isQuad(vertices, indices);
+	if (sharedIndices) {
+	    ibo = QuadIndexBuffer.acquire();
+	} else {
+	    IntBuffer indicesBuffer = MemoryUtil.memAllocInt(indices.length);
+	    indicesBuffer.put(indices).flip();
+	    ibo = GL15.glGenBuffers();
+	    GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ibo);
+	    GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL15.GL_STATIC_DRAW);
+	    MemoryUtil.memFree(indicesBuffer);
+	}
+	// the VAO remembers whichever IBO is bound while it is bound
 	GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ibo);
-	GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL15.GL_STATIC_DRAW);
-	GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-    }
 
-    // this method stores data into a buffer
-    private int storeData(FloatBuffer buffer, int index, int size) {
-	// make the bufferID into a buffer
-	int bufferID = GL15.glGenBuffers();
-	// bind the PBO
-	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, bufferID);
 	/*
-	 * put the positionBuffer into the bufferID
-	 * 
-	 * the GL15.GL_ARRAY_BUFFER now refers to the PBO because we bound it
-	 * above
-	 * 
-	 * GL15.GL_STATIC_DRAW is just telling OpenGL that we're not going to
-	 * change the PBO in between now and rendering
+	 * unbind the VAO (this has to happen before the IBO is unbound, or the
+	 * VAO would forget about the IBO)
 	 */
-	GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
+	GL30.glBindVertexArray(0);
+	GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
 
-	/*
-	 * this will allow shaders to get the data from the VBO
-	 * 
-	 * each argument does as follows:
-	 * 
-	 * index - where we want to start storing the data (this will just start
-	 * storing it at the beginning - so for the first buffer it will start
-	 * at 0, for the next buffer it will start on 1, and so on)
-	 * 
-	 * size - how many pieces of data exist in each vertex (since our
-	 * vertices exist in 3 dimension, there are usually 3 pieces of data to
-	 * store - the x, y, and z coordinates)
-	 * 
-	 * GL11.GL_FLOAT - the size of each piece of data (we're using floats as
-	 * our coordinates)
-	 * 
-	 * the last three arguments - idk but I don't think they're so relevant
-	 * for what I'm doing here
-	 */
-	GL20.glVertexAttribPointer(index, size, GL11.GL_FLOAT, false, 0, 0);
+	// everything on the GPU now matches the vertices
+	dirty = false;
+    }
+
+    /*
+     * this method sends the vertices to the GPU again if they have been
+     * changed (by setVertices()) since the mesh was created or last updated
+     *
+     * instead of destroying the mesh and creating a whole new one (which means
+     * a new VAO, new buffers, and loading the texture again), this just writes
+     * the new data into the VBO that already exists. The indices and the
+     * material never change, so the IBO and the texture are left alone
+     */
+    public void update() {
+	if (!dirty) {
+	    return;
+	}
 
 	/*
-	 * this will unbind the buffer once we're done with it to free up system
-	 * resources
+	 * the buffer here is only needed until the data is sent to the GPU, so
+	 * it is taken from LWJGL's memory stack (which frees it automatically at
+	 * the end of the try block). A mesh too big for the stack gets a buffer
+	 * from the heap instead
 	 */
+	int floats = vertices.length * LAYOUT.getFloatsPerVertex();
+	try (MemoryStack stack = MemoryStack.stackPush()) {
+	    boolean fitsOnStack = (long) floats * Float.BYTES <= stack.getSize() / 2;
+	    FloatBuffer vertexBuffer = fitsOnStack ? stack.mallocFloat(floats) : MemoryUtil.memAllocFloat(floats);
+	    writeVertices(vertexBuffer);
+	    streamData(vbo, vertexBuffer);
+	    if (!fitsOnStack) {
+		MemoryUtil.memFree(vertexBuffer);
+	    }
+	}
+
+	dirty = false;
+    }
+
+    /*
+     * this method writes new data into a buffer that already exists
+     *
+     * calling glBufferData with no data first "orphans" the old storage. That
+     * tells the driver that we don't care about what was in there anymore, so
+     * if the GPU is still drawing with the old data the driver can just give us
+     * fresh memory instead of making us wait for the GPU to finish
+     */
+    private void streamData(int bufferID, FloatBuffer buffer) {
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, bufferID);
+	GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) buffer.remaining() * Float.BYTES, GL15.GL_DYNAMIC_DRAW);
+	GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, buffer);
 	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
 
-	// return the buffer now that we've created it
-	return bufferID;
+    /*
+     * this method writes the data for every vertex into a buffer (in the order
+     * given by LAYOUT) and then flips it so that it's ready to be sent to the
+     * GPU
+     * 
+     * it's also used by the IndirectRenderer, which keeps the vertices of
+     * every mesh in one big buffer
+     */
+    void writeVertices(FloatBuffer buffer) {
+	for (int i = 0; i < vertices.length; i++) {
+	    Vector3f position = vertices[i].getPosition(), color = vertices[i].getColor();
+	    Vector2f textureCoord = vertices[i].getTextureCoord();
+	    buffer.put(position.getX()).put(position.getY()).put(position.getZ());
+	    buffer.put(color.getX()).put(color.getY()).put(color.getZ());
+	    // a material in the texture atlas moves the coordinates into its region
+	    if (material != null) {
+		buffer.put(material.mapU(textureCoord.getX())).put(material.mapV(textureCoord.getY()));
+	    } else {
+		buffer.put(textureCoord.getX()).put(textureCoord.getY());
+	    }
+	}
+	buffer.flip();
     }
 
     /*
@@ -195,10 +241,12 @@ public class Mesh {
      * up system resources
      */
     public void destroy() {
-	GL15.glDeleteBuffers(pbo);
-	GL15.glDeleteBuffers(cbo);
-	GL15.glDeleteBuffers(ibo);
-	GL15.glDeleteBuffers(tbo);
+	GL15.glDeleteBuffers(vbo);
+	if (sharedIndices) {
+	    QuadIndexBuffer.release();
+	} else {
+	    GL15.glDeleteBuffers(ibo);
+	}
 
 	GL30.glDeleteVertexArrays(vao);
 
@@ -207,11 +255,35 @@ public class Mesh {
 	}
     }
 
+    /*
+     * replace the vertices of the mesh (for instance, when the mesh moves)
+     *
+     * this doesn't touch the GPU. The new vertices are sent over the next time
+     * update() is called
+     */
+    public void setVertices(Vertex[] vertices) {
+	this.vertices = vertices;
+	dirty = true;
+    }
+
+    /*
+     * make the mesh be drawn as a round shape (check SHAPE_ROUND). This
+     * doesn't change the vertices at all - the rounding is done when the mesh
+     * is drawn
+     */
+    public void setRounded(boolean rounded) {
+	this.rounded = rounded;
+    }
+
     // the following are getters
     public Vertex[] getVertices() {
 	return vertices;
     }
 
+    public boolean isDirty() {
+	return dirty;
+    }
+
     public int[] getIndices() {
 	return indices;
     }
@@ -220,16 +292,8 @@ public class Mesh {
 	return vao;
     }
 
-    public int getPBO() {
-	return pbo;
-    }
-
-    public int getCBO() {
-	return cbo;
-    }
-
-    public int getTBO() {
-	return tbo;
+    public int getVBO() {
+	return vbo;
     }
 
     public int getIBO() {
@@ -239,4 +303,19 @@ public class Mesh {
     public Material getMaterial() {
 	return material;
     }
+
+    public boolean isRounded() {
+	return rounded;
+    }
+
+    /*
+     * the shape the mesh should be drawn as (a texture always wins over
+     * rounding)
+     */
+    public int getShape() {
+	if (material != null) {
+	    return SHAPE_TEXTURED;
+	}
+	return rounded ? SHAPE_ROUND : SHAPE_SOLID;
+    }
 }
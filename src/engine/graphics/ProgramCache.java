@@ -0,0 +1,250 @@
+/*
+ * the ProgramCache class
+ *
+ * this class saves linked shader programs to the disk, so that the next time
+ * the game starts they don't have to be compiled and linked again
+ *
+ * compiling and linking the shaders is the slowest part of starting the game.
+ * Since OpenGL 4.1, a linked program can be turned into a "program binary"
+ * (whatever the driver compiled it into) with glGetProgramBinary, and that can
+ * be loaded straight back into a program with glProgramBinary
+ *
+ * a program binary only works with the exact driver and GPU that made it, so
+ * the file name is a hash of the shader sources together with the GL vendor,
+ * renderer, and version. If any of them changes, the old file just isn't found
+ * and the program is compiled again. Even then, the driver is allowed to
+ * reject a binary (after a driver update, for example) - in that case the
+ * Shader class falls back to compiling from source and the file is written
+ * again
+ *
+ * the files are saved in ~/.pong/shader-cache by default. Running the game
+ * with -Dpong.shaderCache=<folder> saves them somewhere else, and
+ * -Dpong.shaderCache=false turns the cache off
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL41;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+public class ProgramCache {
+    /*
+     * the first int of every file (so that a file that isn't ours, or is from
+     * an older version of this class, is never handed to the driver)
+     */
+    private static final int MAGIC = 0x50475331;
+
+    // the folder the files are saved in (null if the cache is turned off)
+    private static Path folder;
+
+    // whether or not the folder and the driver have been checked yet
+    private static boolean checked;
+
+    /*
+     * the part of the key that comes from the driver (the same for every
+     * program, so it's only asked for once)
+     */
+    private static String driver;
+
+    // how many programs were loaded from the disk and how many were compiled
+    private static int hits, misses;
+
+    /*
+     * whether or not the cache can be used
+     *
+     * this has to be called with an OpenGL context, since it checks whether
+     * the driver can save programs at all
+     */
+    public static boolean isEnabled() {
+	if (!checked) {
+	    checked = true;
+
+	    String setting = System.getProperty("pong.shaderCache",
+		    Paths.get(System.getProperty("user.home"), ".pong", "shader-cache").toString());
+	    boolean supported = (GL.getCapabilities().OpenGL41 || GL.getCapabilities().GL_ARB_get_program_binary)
+		    && GL11.glGetInteger(GL41.GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+	    if (!setting.equals("false") && supported) {
+		folder = Paths.get(setting);
+		driver = GL11.glGetString(GL11.GL_VENDOR) + "\n" + GL11.glGetString(GL11.GL_RENDERER) + "\n"
+			+ GL11.glGetString(GL11.GL_VERSION);
+	    }
+	}
+	return folder != null;
+    }
+
+    /*
+     * try to load a program from the disk into the given (empty) program
+     *
+     * this returns true if the program was loaded and linked. If it returns
+     * false, the program has to be compiled from source like normal
+     */
+    public static boolean load(int programID, String vertexSource, String fragmentSource) {
+	if (!isEnabled()) {
+	    return false;
+	}
+
+	Path file = fileFor(vertexSource, fragmentSource);
+	if (!Files.isRegularFile(file)) {
+	    misses++;
+	    return false;
+	}
+
+	int format;
+	byte[] binary;
+	try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+	    if (in.readInt() != MAGIC) {
+		misses++;
+		return false;
+	    }
+	    format = in.readInt();
+	    int length = in.readInt();
+	    if (length <= 0 || length > Files.size(file)) {
+		System.err.println("the cached shader program at " + file + " is corrupted");
+		misses++;
+		return false;
+	    }
+	    binary = new byte[length];
+	    in.readFully(binary);
+	    long checksum = in.readLong();
+	    if (checksum != checksum(binary)) {
+		System.err.println("the cached shader program at " + file + " is corrupted");
+		misses++;
+		return false;
+	    }
+	} catch (IOException e) {
+	    System.err.println("Can't read the cached shader program at " + file);
+	    misses++;
+	    return false;
+	}
+
+	ByteBuffer buffer = MemoryUtil.memAlloc(binary.length);
+	buffer.put(binary).flip();
+	GL41.glProgramBinary(programID, format, buffer);
+	MemoryUtil.memFree(buffer);
+
+	// the driver is allowed to say no (after a driver update, for example)
+	if (GL20.glGetProgrami(programID, GL20.GL_LINK_STATUS) == GL11.GL_FALSE) {
+	    misses++;
+	    return false;
+	}
+
+	hits++;
+	return true;
+    }
+
+    /*
+     * tell the driver that a program is going to be saved
+     *
+     * this has to be called before the program is linked
+     */
+    public static void prepare(int programID) {
+	if (isEnabled()) {
+	    GL41.glProgramParameteri(programID, GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
+	}
+    }
+
+    /*
+     * save a program that was just linked (and validated) to the disk
+     *
+     * if the file can't be written the game still works - it just has to
+     * compile the program again next time
+     */
+    public static void store(int programID, String vertexSource, String fragmentSource) {
+	if (!isEnabled()) {
+	    return;
+	}
+
+	int length = GL20.glGetProgrami(programID, GL41.GL_PROGRAM_BINARY_LENGTH);
+	if (length <= 0) {
+	    return;
+	}
+
+	byte[] binary = new byte[length];
+	int format;
+	ByteBuffer buffer = MemoryUtil.memAlloc(length);
+	try (MemoryStack stack = MemoryStack.stackPush()) {
+	    IntBuffer formatBuffer = stack.mallocInt(1);
+	    GL41.glGetProgramBinary(programID, null, formatBuffer, buffer);
+	    format = formatBuffer.get(0);
+	    buffer.get(binary);
+	}
+	MemoryUtil.memFree(buffer);
+
+	/*
+	 * write to a temporary file first and then move it over the real one,
+	 * so that a game that's turned off halfway through never leaves half a
+	 * file behind
+	 */
+	Path file = fileFor(vertexSource, fragmentSource);
+	try {
+	    Files.createDirectories(folder);
+	    Path temporary = Files.createTempFile(folder, "program", ".tmp");
+	    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+		out.writeInt(MAGIC);
+		out.writeInt(format);
+		out.writeInt(binary.length);
+		out.write(binary);
+		out.writeLong(checksum(binary));
+	    }
+	    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	} catch (IOException e) {
+	    System.err.println("Can't save the shader program to " + file + ": " + e.getMessage());
+	}
+    }
+
+    // get the file that a program with the given sources is saved in
+    private static Path fileFor(String vertexSource, String fragmentSource) {
+	return folder.resolve(hash(driver + "\n" + vertexSource + "\n" + fragmentSource) + ".bin");
+    }
+
+    // hash a string into a hex string (that can be used as a file name)
+    private static String hash(String text) {
+	try {
+	    byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+	    StringBuilder result = new StringBuilder();
+	    for (int i = 0; i < digest.length; i++) {
+		result.append(String.format("%02x", digest[i]));
+	    }
+	    return result.toString();
+	} catch (NoSuchAlgorithmException e) {
+	    // every Java has SHA-256, so this can't actually happen
+	    return Integer.toHexString(text.hashCode());
+	}
+    }
+
+    // a checksum of a program binary (to notice a file that got corrupted)
+    private static long checksum(byte[] binary) {
+	CRC32 crc = new CRC32();
+	crc.update(binary);
+	return crc.getValue();
+    }
+
+    // the following methods are getters
+    public static int getHits() {
+	return hits;
+    }
+
+    public static int getMisses() {
+	return misses;
+    }
+}
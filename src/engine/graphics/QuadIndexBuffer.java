@@ -0,0 +1,103 @@
+/*
+ * the QuadIndexBuffer class
+ *
+ * this class holds one IBO that every quad in the game can share
+ *
+ * every quad (the meshes made by the Rectangle, Square, and Circle classes) is
+ * drawn with the same indices: 0, 1, 2, 0, 3, 2. So instead of every quad
+ * having its own IBO with the exact same numbers in it, they all use this one.
+ * It holds the indices for MAX_QUADS quads in a row (the second quad uses 4, 5,
+ * 6, 4, 7, 6 and so on), so it also works for something like the SpriteBatch
+ * that draws lots of quads out of one buffer
+ *
+ * like the TextureCache, it's shared by "acquiring" it and deleted once
+ * everyone who acquired it has released it
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.nio.IntBuffer;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.system.MemoryUtil;
+
+public class QuadIndexBuffer {
+    // how many quads the buffer has indices for
+    public static final int MAX_QUADS = 4096;
+
+    // the indices for one quad
+    private static final int[] QUAD = new int[]
+	{
+	    0,
+	    1,
+	    2,
+	    0,
+	    3,
+	    2
+	};
+
+    // the IBO (0 if it hasn't been created)
+    private static int ibo;
+
+    // how many things are currently using the IBO
+    private static int references;
+
+    /*
+     * get the shared IBO (creating it if it hasn't been created yet)
+     *
+     * every call to this method must be matched with a call to release()
+     */
+    public static int acquire() {
+	if (ibo == 0) {
+	    IntBuffer indices = MemoryUtil.memAllocInt(MAX_QUADS * QUAD.length);
+	    for (int i = 0; i < MAX_QUADS; i++) {
+		for (int j = 0; j < QUAD.length; j++) {
+		    indices.put((i * 4) + QUAD[j]);
+		}
+	    }
+	    indices.flip();
+
+	    /*
+	     * the IBO is bound to GL_ARRAY_BUFFER here (instead of
+	     * GL_ELEMENT_ARRAY_BUFFER) so that it doesn't get attached to
+	     * whatever VAO happens to be bound right now
+	     */
+	    ibo = GL15.glGenBuffers();
+	    GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, ibo);
+	    GL15.glBufferData(GL15.GL_ARRAY_BUFFER, indices, GL15.GL_STATIC_DRAW);
+	    GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+	    MemoryUtil.memFree(indices);
+	}
+
+	references++;
+	return ibo;
+    }
+
+    // stop using the shared IBO (it's deleted once nobody is using it)
+    public static void release() {
+	references--;
+	if (references <= 0 && ibo != 0) {
+	    GL15.glDeleteBuffers(ibo);
+	    ibo = 0;
+	    references = 0;
+	}
+    }
+
+    /*
+     * whether or not a mesh is a single quad (4 vertices drawn with the
+     * indices 0, 1, 2, 0, 3, 2) - meaning it can use the shared IBO
+     */
+    public static boolean isQuad(Vertex[] vertices, int[] indices) {
+	if (vertices.length != 4 || indices.length != QUAD.length) {
+	    return false;
+	}
+	for (int i = 0; i < QUAD.length; i++) {
+	    if (indices[i] != QUAD[i]) {
+		return false;
+	    }
+	}
+	return true;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * the RenderQueue class
+ *
+ * this class collects everything that should be drawn in a frame so that it
+ * can be put in a better order before any of it is actually drawn
+ *
+ * every item is given a sort key made out of its shader program, its texture,
+ * and its VAO (in that order). Sorting by that key puts everything that uses
+ * the same shader next to each other, then everything with the same texture,
+ * and so on - so when the items are drawn in order, OpenGL has to switch
+ * between shaders, textures, and VAOs as few times as possible
+ *
+ * NOTE: this changes the order things are drawn in. Everything in Pong is at
+ * the same depth and nothing overlaps, so that doesn't matter here - but things
+ * that overlap at the same depth could end up on top of each other differently
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.util.Arrays;
+
+import engine.objects.GameObject;
+
+public class RenderQueue {
+    /*
+     * how many bits of the sort key each part gets
+     *
+     * the lowest bits hold the item's position in the queue (so that after
+     * sorting the keys we know which item each key belongs to). If an ID is
+     * too big to fit in its bits, the items just end up sorted a little
+     * worse - they're still all drawn correctly
+     */
+    private static final int INDEX_BITS = 20, VAO_BITS = 18, TEXTURE_BITS = 16, PROGRAM_BITS = 9;
+
+    // the most items that fit in the queue
+    public static final int MAX_ITEMS = 1 << INDEX_BITS;
+
+    // the items in the queue and the shader each one should be drawn with
+    private GameObject[] objects = new GameObject[64];
+    private Shader[] shaders = new Shader[64];
+
+    // the sort key of each item
+    private long[] keys = new long[64];
+
+    // how many items are in the queue
+    private int size;
+
+    // add an item to the queue
+    public void add(GameObject object, Shader shader) {
+	if (size == MAX_ITEMS) {
+	    throw new IllegalStateException("the render queue can only hold " + MAX_ITEMS + " items");
+	}
+
+	// make the arrays bigger if they're full
+	if (size == objects.length) {
+	    objects = Arrays.copyOf(objects, size * 2);
+	    shaders = Arrays.copyOf(shaders, size * 2);
+	    keys = Arrays.copyOf(keys, size * 2);
+	}
+
+	Mesh mesh = object.getMesh();
+	int texture = (mesh.getMaterial() == null) ? 0 : mesh.getMaterial().getTextureID();
+
+	long key = bits(shader.getProgramID(), PROGRAM_BITS);
+	key = (key << TEXTURE_BITS) | bits(texture, TEXTURE_BITS);
+	key = (key << VAO_BITS) | bits(mesh.getVAO(), VAO_BITS);
+	key = (key << INDEX_BITS) | size;
+
+	objects[size] = object;
+	shaders[size] = shader;
+	keys[size] = key;
+	size++;
+    }
+
+    // cut an ID down to the given number of bits
+    private static long bits(int id, int bits) {
+	return id & ((1L << bits) - 1);
+    }
+
+    /*
+     * put the items in order of their sort keys
+     *
+     * only the keys are sorted (it's an array of longs, so sorting it doesn't
+     * allocate anything). The items themselves are found through the index in
+     * the bottom bits of each key
+     */
+    public void sort() {
+	Arrays.sort(keys, 0, size);
+    }
+
+    // get the item that is in the given place after sorting
+    public GameObject getObject(int i) {
+	return objects[(int) (keys[i] & (MAX_ITEMS - 1))];
+    }
+
+    // get the shader for the item that is in the given place after sorting
+    public Shader getShader(int i) {
+	return shaders[(int) (keys[i] & (MAX_ITEMS - 1))];
+    }
+
+    // how many items are in the queue
+    public int size() {
+	return size;
+    }
+
+    // empty the queue (to start a new frame)
+    public void clear() {
+	/*
+	 * forget the items so that the queue doesn't keep them from being
+	 * garbage collected
+	 */
+	Arrays.fill(objects, 0, size, null);
+	Arrays.fill(shaders, 0, size, null);
+	size = 0;
+    }
+}
@@ -3,20 +3,29 @@
  * 
  * this is the class that actually renders the mesh
  * 
+ * it can either draw objects one at a time (submit() and flush(), which sort
+ * the objects so that as little as possible has to be bound between them) or
+ * draw lots of copies of the same mesh with one draw call (renderInstanced())
+ * 
  * Aidin Yazdi
  */
 
 package engine.graphics;
 
+import java.util.Arrays;
+
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL42;
 
 import engine.io.Window;
-import engine.maths.Matrix4f;
+import engine.maths.Vector3f;
 import engine.objects.Camera;
 import engine.objects.GameObject;
+import engine.objects.Square;
+import engine.utils.FrameStats;
 
 public class Renderer {
     // the shader
@@ -25,76 +34,358 @@ public class Renderer {
     // the window
     private Window window;
 
-    // the constructor
+    /*
+     * handles to the uniforms that are set for every object (so that they
+     * don't have to be looked up by name every time)
+     */
+    private Uniform model, shape;
+
+    /*
+     * the shader used for instanced drawing (this should be the
+     * instancedVertex and mainFragment shaders) and handles to its uniforms
+     * 
+     * this is optional. If there is no instanced shader, only renderMesh()
+     * can be used
+     */
+    private Shader instancedShader;
+
+    /*
+     * the unit square that every quad is drawn with when drawing instances,
+     * and the instances for it
+     */
+    private Mesh unitSquare;
+    private InstanceBuffer instances;
+
+    // everything that has been submitted but not drawn yet
+    private RenderQueue queue = new RenderQueue();
+
+    /*
+     * the different textures used by the objects in renderInstanced(), and
+     * how many objects use each one
+     */
+    private int[] textures = new int[8], textureCounts = new int[8];
+
+    /*
+     * the constructor
+     * 
+     * the shader must already be created (because the uniforms are looked up
+     * here)
+     */
     public Renderer(Window window, Shader shader) {
+	this(window, shader, null);
+    }
+
+    /*
+     * the constructor (with a shader for instanced drawing)
+     * 
+     * both shaders must already be created
+     */
+    public Renderer(Window window, Shader shader, Shader instancedShader) {
 	this.shader = shader;
 	this.window = window;
+	this.instancedShader = instancedShader;
+
+	model = shader.getUniform("model");
+	shape = shader.getUniform("shape");
     }
 
+    /*
+     * create everything on the GPU that the renderer needs for instanced
+     * drawing (this doesn't do anything if there is no instanced shader)
+     */
+    public void create() {
+	if (instancedShader == null) {
+	    return;
+	}
+
+	/*
+	 * a white square with its top left corner at (0, 0) and sides of
+	 * length 1 (the color of each instance is multiplied by white, so it
+	 * stays the same)
+	 */
+	Vector3f white = new Vector3f(1.0f, 1.0f, 1.0f);
+	unitSquare = Square.generateSquare(new Vector3f(0.0f, 0.0f, 0.0f), new Vector3f(0.0f, 0.0f, 0.0f), 1.0f, white,
+		white, white, white, null);
+	unitSquare.create();
+
+	instances = new InstanceBuffer(256);
+	instances.create();
+	instances.attach(unitSquare);
+    }
+
+    /*
+     * draw one object right away
+     * 
+     * this just puts the object in the render queue and flushes it, so
+     * anything else that was already submitted gets drawn too
+     */
     public void renderMesh(GameObject object, Camera camera) {
-	// bind the VBO
-	GL30.glBindVertexArray(object.getMesh().getVAO());
+	submit(object);
+	flush(camera);
+    }
+
+    /*
+     * add an object to the render queue (with the renderer's shader)
+     * 
+     * nothing is drawn until flush() is called
+     */
+    public void submit(GameObject object) {
+	submit(object, shader);
+    }
+
+    // add an object to the render queue to be drawn with a specific shader
+    public void submit(GameObject object, Shader shader) {
+	queue.add(object, shader);
+    }
+
+    /*
+     * draw everything in the render queue
+     * 
+     * the queue is sorted first (check the RenderQueue class), and then every
+     * bind goes through the GLState class - so if two objects in a row use the
+     * same shader, texture, or VAO, it isn't bound again
+     */
+    public void flush(Camera camera) {
+	queue.sort();
+
 	/*
-	 * the next two lines enable positions in the vertex attribute array
+	 * we don't know what anything else left bound, so start from scratch
 	 * 
-	 * for instance, we store the position in the first spot in the VAO
-	 * (element 0). So, before we put the position buffer (the PBO) in the
-	 * VAO we need to enable that element (so we must enable position 0 in
-	 * the VAO). For the CBO, we need the second position (element 1), and
-	 * so on and so forth
+	 * only texture unit 0 is ever used, so it's made active once here
+	 */
+	GLState.reset();
+	GL13.glActiveTexture(GL13.GL_TEXTURE0);
+
+	/*
+	 * the view and projection matrices are the same for every object (and
+	 * every shader), so they're only uploaded once (check the CameraBuffer
+	 * class)
+	 */
+	CameraBuffer.update(camera, window);
+
+	/*
+	 * the shape of the last object (-1 means that it hasn't been set yet
+	 * for the current shader)
+	 */
+	int lastShape = -1;
+
+	/*
+	 * the object whose model matrix was uploaded last (and which version of
+	 * it), and whether that matrix was the identity matrix. If the next
+	 * object has the same matrix, it doesn't have to be uploaded again
 	 */
-	GL30.glEnableVertexAttribArray(0);
-	GL30.glEnableVertexAttribArray(1);
-	GL30.glEnableVertexAttribArray(2);
-
-	// bind the IBO
-	GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, object.getMesh().getIBO());
-
-	// deal with the texture
-	if (object.getMesh().getMaterial() != null) {
-	    // put our texture in the OpenGL texture array at the zero index
-	    GL13.glActiveTexture(GL13.GL_TEXTURE0);
-	    // bind our texture
-	    GL13.glBindTexture(GL11.GL_TEXTURE_2D, object.getMesh().getMaterial().getTextureID());
-	} else {
-	    GL13.glActiveTexture(0);
-	    GL13.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+	GameObject lastModel = null;
+	int lastVersion = 0;
+	boolean lastIdentity = false;
+
+	Uniform model = this.model, shape = this.shape;
+	for (int i = 0; i < queue.size(); i++) {
+	    GameObject object = queue.getObject(i);
+	    Shader objectShader = queue.getShader(i);
+	    Mesh mesh = object.getMesh();
+
+	    /*
+	     * bind the shader (only if it's different from the last one)
+	     * 
+	     * when the shader changes, its uniforms have to be found (the camera
+	     * matrices don't, since every shader reads them from the same
+	     * CameraBuffer)
+	     */
+	    if (GLState.useProgram(objectShader.getProgramID())) {
+		if (objectShader == shader) {
+		    model = this.model;
+		    shape = this.shape;
+		} else {
+		    model = objectShader.getUniform("model");
+		    shape = objectShader.getUniform("shape");
+		}
+		lastShape = -1;
+		lastModel = null;
+		lastIdentity = false;
+	    }
+
+	    /*
+	     * bind the texture and the VAO (the VAO already has its IBO and
+	     * enabled attributes - check Mesh.create())
+	     */
+	    GLState.bindTexture((mesh.getMaterial() == null) ? 0 : mesh.getMaterial().getTextureID());
+	    GLState.bindVertexArray(mesh.getVAO());
+
+	    // set the uniforms
+	    /*
+	     * the model matrix is kept by the object (check
+	     * GameObject.getModelMatrix()), so it's only uploaded if it's
+	     * different from the one that is already in the shader
+	     */
+	    boolean identity = object.isIdentity();
+	    if ((identity && lastIdentity) || (object == lastModel && object.getVersion() == lastVersion)) {
+		FrameStats.countStateChangeAvoided();
+	    } else {
+		model.set(object.getModelMatrix());
+		lastModel = object;
+		lastVersion = object.getVersion();
+		lastIdentity = identity;
+	    }
+	    int meshShape = mesh.getShape();
+	    if (meshShape != lastShape) {
+		shape.set(meshShape);
+		lastShape = meshShape;
+	    } else {
+		FrameStats.countStateChangeAvoided();
+	    }
+
+	    /*
+	     * the actual draw function
+	     * 
+	     * GL_TRIANGLES - what we want to draw (triangles work great because
+	     * pretty much any shape can be made from them
+	     * 
+	     * mesh.getIndices().length - how many indices we want to draw
+	     * 
+	     * GL11.GL_FLOAT - what type of numbers we want to use to draw
+	     * 
+	     * 0 - the pointer (we don't have a pointer so we can just pass in 0
+	     * and ignore this argument)
+	     */
+	    GL11.glDrawElements(GL11.GL_TRIANGLES, mesh.getIndices().length, GL11.GL_UNSIGNED_INT, 0);
+	    FrameStats.countDrawCall();
 	}
 
-	// bind the shader (source code can be found in the Shader class)
-	shader.bind();
+	/*
+	 * unbind everything once at the end (instead of after every object)
+	 */
+	GL20.glUseProgram(0);
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+	GL30.glBindVertexArray(0);
+	GLState.reset();
 
-	// set the uniforms
-	shader.setUniform("model", Matrix4f.transform(object.getPosition(), object.getRotation(), object.getScale()));
-	shader.setUniform("view", Matrix4f.view(camera.getPosition(), camera.getRotation()));
-	shader.setUniform("projection", window.getProjectionMatrix());
-	shader.setUniform("isTextured", (object.getMesh().getMaterial() != null) ? true : false);
-	
+	queue.clear();
+    }
+
+    /*
+     * draw a mesh once for every instance in the instance buffer, all with
+     * one draw call
+     * 
+     * the instance buffer must have been uploaded and attached to the mesh
+     * (check the InstanceBuffer class). "textureID" is the texture every
+     * instance uses (or 0 for no texture)
+     */
+    public void renderInstanced(Mesh mesh, int textureID, InstanceBuffer instances, Camera camera) {
+	beginInstanced(camera);
+	drawInstances(mesh, textureID, 0, instances.size());
+	endInstanced();
+    }
+
+    /*
+     * draw a whole array of objects using instances of one unit square
+     * 
+     * every object's mesh has to be a quad. The objects are grouped by
+     * texture, and each group is drawn with one draw call - so a scene with
+     * one texture takes two draw calls no matter how many objects there are
+     */
+    public void renderInstanced(GameObject[] objects, Camera camera) {
 	/*
-	 * the actual draw function
-	 * 
-	 * GL_TRIANGLES - what we want to draw (triangles work great because
-	 * pretty much any shape can be made from them
-	 * 
-	 * mesh.getIndices().length - how many indices we want to draw
-	 * 
-	 * GL11.GL_FLOAT - what type of numbers we want to use to draw
-	 * 
-	 * 0 - the pointer (we don't have a pointer so we can just pass in 0 and
-	 * ignore this argument)
+	 * first, put all the untextured quads in the instance buffer, and find
+	 * all the different textures
 	 */
-	GL11.glDrawElements(GL11.GL_TRIANGLES, object.getMesh().getIndices().length, GL11.GL_UNSIGNED_INT, 0);
+	instances.clear();
+	int textureCount = 0;
+	for (int i = 0; i < objects.length; i++) {
+	    Material material = objects[i].getMesh().getMaterial();
+	    if (material == null) {
+		instances.add(objects[i]);
+	    } else if (indexOf(material.getTextureID(), textureCount) == -1) {
+		if (textureCount == textures.length) {
+		    textures = Arrays.copyOf(textures, textures.length * 2);
+		    textureCounts = new int[textures.length];
+		}
+		textures[textureCount++] = material.getTextureID();
+	    }
+	}
+	int untexturedCount = instances.size();
 
 	/*
-	 * disable/unbind everything to free up system resources
-	 * 
-	 * the source code for shader.unbind() can be found in the Shader class
+	 * then put in the quads for each texture (so that the quads for each
+	 * texture are next to each other in the buffer)
+	 */
+	for (int t = 0; t < textureCount; t++) {
+	    int before = instances.size();
+	    for (int i = 0; i < objects.length; i++) {
+		Material material = objects[i].getMesh().getMaterial();
+		if (material != null && material.getTextureID() == textures[t]) {
+		    instances.add(objects[i]);
+		}
+	    }
+	    textureCounts[t] = instances.size() - before;
+	}
+	instances.upload();
+
+	// now draw each group (they're in the buffer in the same order)
+	beginInstanced(camera);
+	drawInstances(unitSquare, 0, 0, untexturedCount);
+	int first = untexturedCount;
+	for (int t = 0; t < textureCount; t++) {
+	    drawInstances(unitSquare, textures[t], first, textureCounts[t]);
+	    first += textureCounts[t];
+	}
+	endInstanced();
+    }
+
+    // set up everything that is the same for every instanced draw call
+    private void beginInstanced(Camera camera) {
+	if (instancedShader == null) {
+	    throw new IllegalStateException("the Renderer was made without an instanced shader");
+	}
+
+	CameraBuffer.update(camera, window);
+	instancedShader.bind();
+	GL13.glActiveTexture(GL13.GL_TEXTURE0);
+    }
+
+    /*
+     * draw "count" instances of the mesh, starting at instance number "first"
+     * in the instance buffer
+     */
+    private void drawInstances(Mesh mesh, int textureID, int first, int count) {
+	if (count == 0) {
+	    return;
+	}
+
+	// the VAO already has the IBO (check Mesh.create())
+	GL30.glBindVertexArray(mesh.getVAO());
+	GL13.glBindTexture(GL11.GL_TEXTURE_2D, textureID);
+
+	/*
+	 * the base instance tells OpenGL which instance in the buffer to start
+	 * reading from
 	 */
-	shader.unbind();
-	GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-	GL30.glDisableVertexAttribArray(0);
-	GL30.glDisableVertexAttribArray(1);
-	GL30.glDisableVertexAttribArray(2);
+	GL42.glDrawElementsInstancedBaseInstance(GL11.GL_TRIANGLES, mesh.getIndices().length, GL11.GL_UNSIGNED_INT,
+		0, count, first);
+	FrameStats.countDrawCall();
+    }
+
+    // unbind everything after instanced drawing
+    private void endInstanced() {
+	instancedShader.unbind();
+	GL13.glBindTexture(GL11.GL_TEXTURE_2D, 0);
 	GL30.glBindVertexArray(0);
     }
+
+    // find where a texture is in the textures array (or -1 if it isn't)
+    private int indexOf(int textureID, int textureCount) {
+	for (int i = 0; i < textureCount; i++) {
+	    if (textures[i] == textureID) {
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+    // delete everything the renderer created to free up system resources
+    public void destroy() {
+	if (unitSquare != null) {
+	    unitSquare.destroy();
+	    instances.destroy();
+	}
+    }
 }
@@ -9,9 +9,12 @@
 package engine.graphics;
 
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
 
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 
 import engine.maths.Matrix4f;
@@ -30,6 +33,28 @@ public class Shader {
      */
     private int vertexID, fragmentID, programID;
 
+    /*
+     * every active uniform in the program (the key is the uniform's name)
+     * 
+     * these are filled in once the program has been linked, so that nothing
+     * has to be asked from OpenGL while we're drawing
+     */
+    private HashMap<String, Uniform> uniforms = new HashMap<String, Uniform>();
+
+    // the locations of every active vertex attribute (the "in" variables)
+    private HashMap<String, Integer> attributes = new HashMap<String, Integer>();
+
+    /*
+     * a buffer (outside of the Java heap) that every matrix is copied into
+     * before it's sent to the GPU
+     * 
+     * the same buffer is reused for every matrix, so sending a matrix doesn't
+     * allocate any memory. This is safe because a shader is only ever used
+     * from the thread that owns the OpenGL context, and OpenGL has already
+     * read the data by the time glUniformMatrix4fv returns
+     */
+    private FloatBuffer matrixBuffer;
+
     // the constructor
     public Shader(String vertexPath, String fragmentPath) {
 	/*
@@ -42,9 +67,25 @@ public class Shader {
 
     // this method actually creates and compiles the shaders and the program
     public void create() {
+	// create the buffer that matrices are sent to the GPU through
+	if (matrixBuffer == null) {
+	    matrixBuffer = MemoryUtil.memAllocFloat(Matrix4f.SIZE * Matrix4f.SIZE);
+	}
+
 	// create the program
 	programID = GL20.glCreateProgram();
 
+	/*
+	 * if this program was saved to the disk the last time the game ran, just
+	 * load it (check the ProgramCache class). The shaders don't have to be
+	 * compiled at all then, and the program was already validated before it
+	 * was saved
+	 */
+	if (ProgramCache.load(programID, vertexFile, fragmentFile)) {
+	    introspect();
+	    return;
+	}
+
 	// create the vertex shader
 	vertexID = GL20.glCreateShader(GL20.GL_VERTEX_SHADER);
 	// link the vertex shader to its source file
@@ -73,6 +114,9 @@ public class Shader {
 	GL20.glAttachShader(programID, vertexID);
 	GL20.glAttachShader(programID, fragmentID);
 
+	// let the driver know that we want to save the program once it's linked
+	ProgramCache.prepare(programID);
+
 	/*
 	 * links the program (I think this just makes it so that the program can
 	 * be used)
@@ -91,48 +135,131 @@ public class Shader {
 	    System.err.println("The Program did not validate correctly: " + GL20.glGetProgramInfoLog(programID));
 	    return;
 	}
+
+	// save the program so that it doesn't have to be compiled next time
+	ProgramCache.store(programID, vertexFile, fragmentFile);
+
+	// find all the uniforms and attributes in the program
+	introspect();
+    }
+
+    /*
+     * this method asks OpenGL for every active uniform and attribute in the
+     * linked program and stores their locations
+     * 
+     * this only happens once (when the shader is created). After this, getting
+     * a location is just a lookup in a table
+     */
+    private void introspect() {
+	uniforms.clear();
+	attributes.clear();
+
+	try (MemoryStack stack = MemoryStack.stackPush()) {
+	    // these just hold extra information OpenGL gives us that we don't need
+	    IntBuffer size = stack.mallocInt(1);
+	    IntBuffer type = stack.mallocInt(1);
+
+	    int uniformCount = GL20.glGetProgrami(programID, GL20.GL_ACTIVE_UNIFORMS);
+	    for (int i = 0; i < uniformCount; i++) {
+		String name = stripArrayIndex(GL20.glGetActiveUniform(programID, i, size, type));
+		uniforms.put(name, new Uniform(this, name, GL20.glGetUniformLocation(programID, name)));
+	    }
+
+	    int attributeCount = GL20.glGetProgrami(programID, GL20.GL_ACTIVE_ATTRIBUTES);
+	    for (int i = 0; i < attributeCount; i++) {
+		String name = stripArrayIndex(GL20.glGetActiveAttrib(programID, i, size, type));
+		attributes.put(name, GL20.glGetAttribLocation(programID, name));
+	    }
+	}
+    }
+
+    /*
+     * OpenGL names arrays like "name[0]", but we want to be able to look them
+     * up as just "name"
+     */
+    private static String stripArrayIndex(String name) {
+	return name.endsWith("[0]") ? name.substring(0, name.length() - 3) : name;
+    }
+
+    /*
+     * this function will return a handle to the uniform with the given name
+     * 
+     * callers that set the same uniform every frame should get the handle
+     * once and keep it (check the Uniform class)
+     * 
+     * if the uniform doesn't exist in the program, the handle will have a
+     * location of -1 (and setting it won't do anything)
+     */
+    public Uniform getUniform(String name) {
+	Uniform uniform = uniforms.get(name);
+	if (uniform == null) {
+	    uniform = new Uniform(this, name, -1);
+	    uniforms.put(name, uniform);
+	}
+	return uniform;
     }
 
     // this function will return the location of the uniform
     public int getUniformLocation(String name) {
-	return GL20.glGetUniformLocation(programID, name);
+	return getUniform(name).getLocation();
+    }
+
+    /*
+     * this function will return the location of the vertex attribute (or -1 if
+     * the attribute doesn't exist in the program)
+     */
+    public int getAttributeLocation(String name) {
+	Integer location = attributes.get(name);
+	return location == null ? -1 : location;
     }
 
     /*
      * the following six methods use method overriding to set up different types
      * of uniforms using different data types
+     * 
+     * these look the uniform up by name every time. Anything that sets
+     * uniforms every frame should use getUniform() instead
      */
     public void setUniform(String name, float value) {
-	GL20.glUniform1f(getUniformLocation(name), value);
+	getUniform(name).set(value);
     }
 
     public void setUniform(String name, int value) {
-	GL20.glUniform1i(getUniformLocation(name), value);
+	getUniform(name).set(value);
     }
 
     public void setUniform(String name, boolean value) {
-	/*
-	 * since we can't pass in a boolean, we pass in 1 if value is true and 0
-	 * if it's false
-	 */
-	GL20.glUniform1i(getUniformLocation(name), value ? 1 : 0);
+	getUniform(name).set(value);
     }
 
     public void setUniform(String name, Vector2f value) {
-	GL20.glUniform2f(getUniformLocation(name), value.getX(), value.getY());
+	getUniform(name).set(value);
     }
 
     public void setUniform(String name, Vector3f value) {
-	GL20.glUniform3f(getUniformLocation(name), value.getX(), value.getY(), value.getZ());
+	getUniform(name).set(value);
     }
 
     public void setUniform(String name, Matrix4f value) {
-	// create a buffer to store the matrix in
-	FloatBuffer matrix = MemoryUtil.memAllocFloat(Matrix4f.SIZE * Matrix4f.SIZE);
+	getUniform(name).set(value);
+    }
+
+    /*
+     * this method sends a matrix to the uniform at the given location
+     * 
+     * the matrix is written into the reusable matrixBuffer (so nothing is
+     * allocated here)
+     */
+    void uploadMatrix(int location, Matrix4f value) {
 	// store the matrix in the buffer so that it is formatted it correctly
-	matrix.put(value.getAll()).flip();
-	// put the matrix buffer that we've created in a uniform
-	GL20.glUniformMatrix4fv(getUniformLocation(name), true, matrix);
+	value.store(matrixBuffer);
+	// put the matrix buffer in the uniform
+	GL20.glUniformMatrix4fv(location, true, matrixBuffer);
+    }
+
+    // this returns the ID of the program (used to sort things by shader)
+    public int getProgramID() {
+	return programID;
     }
 
     // this method will bind the shader to whatever we're drawing
@@ -151,10 +278,21 @@ public class Shader {
 
     // this method deletes the program to free up system resources
     public void destroy() {
-	GL20.glDetachShader(programID, vertexID);
-	GL20.glDetachShader(programID, fragmentID);
-	GL20.glDeleteShader(vertexID);
-	GL20.glDeleteShader(fragmentID);
+	// a program that was loaded from the disk doesn't have any shaders
+	if (vertexID != 0) {
+	    GL20.glDetachShader(programID, vertexID);
+	    GL20.glDeleteShader(vertexID);
+	}
+	if (fragmentID != 0) {
+	    GL20.glDetachShader(programID, fragmentID);
+	    GL20.glDeleteShader(fragmentID);
+	}
 	GL20.glDeleteProgram(programID);
+
+	// free the matrix buffer (since it's outside of the Java heap)
+	if (matrixBuffer != null) {
+	    MemoryUtil.memFree(matrixBuffer);
+	    matrixBuffer = null;
+	}
     }
 }
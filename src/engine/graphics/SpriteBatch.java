@@ -0,0 +1,353 @@
+/*
+ * the SpriteBatch class
+ *
+ * this class draws a whole bunch of quads (the meshes made by the Rectangle,
+ * Square, and Circle classes) with as few draw calls as possible
+ *
+ * instead of drawing every object by itself (like Renderer.renderMesh()
+ * does), every object drawn between begin() and end() is just written into an
+ * array on the CPU. The quads are grouped by which texture they use, and when
+ * end() is called each group is sent to the GPU through one big buffer and
+ * drawn with a single draw call
+ *
+ * quads without a texture don't need a texture bound at all, so they get drawn
+ * together with the first group of textured quads. That means a scene with
+ * only one texture (like Pong with its hearts) is drawn in one draw call
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+
+import engine.io.Window;
+import engine.maths.Matrix4f;
+import engine.maths.Vector3f;
+import engine.objects.Camera;
+import engine.objects.GameObject;
+import engine.utils.FrameStats;
+
+public class SpriteBatch {
+    /*
+     * the most quads that can be sent to the GPU in one draw call (this is as
+     * many as the shared IBO has indices for)
+     */
+    public static final int MAX_QUADS = QuadIndexBuffer.MAX_QUADS;
+
+    /*
+     * how the data for each vertex is laid out: the position (3), the color
+     * (3), the texture coordinates (2), and the shape it should be drawn as (1)
+     * (check the SHAPE_ numbers in the Mesh class)
+     */
+    private static final VertexLayout LAYOUT = new VertexLayout(3, 3, 2, 1);
+    private static final int FLOATS_PER_VERTEX = LAYOUT.getFloatsPerVertex();
+    private static final int FLOATS_PER_QUAD = FLOATS_PER_VERTEX * 4;
+
+    // the shader (this should be the batchVertex and mainFragment shaders)
+    private Shader shader;
+
+    // the window (for the projection matrix)
+    private Window window;
+
+    /*
+     * the VAO and the IBO
+     *
+     * the IBO never changes, since every quad is drawn in the same order
+     * (0,1,2,0,3,2) - just with a different starting vertex. It's the one that
+     * is shared by all quads (check the QuadIndexBuffer class)
+     */
+    private int vao, ibo;
+
+    /*
+     * the buffer that all the vertices are streamed through. Every frame
+     * writes its vertices straight into a new region of it (check the
+     * StreamingBuffer class)
+     */
+    private StreamingBuffer vertices;
+
+    // one group of quads for every texture that has been drawn
+    private ArrayList<Bucket> buckets = new ArrayList<Bucket>();
+
+    // the group of quads that don't use a texture
+    private Bucket untextured = new Bucket(0);
+
+    // whether or not we're between begin() and end()
+    private boolean drawing;
+
+    // a vector to hold positions that had to be transformed
+    private Vector3f scratch = new Vector3f(0, 0, 0);
+
+    /*
+     * the constructor
+     *
+     * the view and projection matrices come from the CameraBuffer, so the
+     * shader doesn't have any uniforms to look up
+     */
+    public SpriteBatch(Window window, Shader shader) {
+	this.window = window;
+	this.shader = shader;
+    }
+
+    // create all the buffers on the GPU
+    public void create() {
+	vao = GL30.glGenVertexArrays();
+	GL30.glBindVertexArray(vao);
+
+	/*
+	 * each region of the streaming buffer is big enough for MAX_QUADS quads,
+	 * but nothing is put in it yet (that happens every frame)
+	 */
+	vertices = new StreamingBuffer(LAYOUT, MAX_QUADS * 4);
+	vertices.create();
+
+	/*
+	 * all the data for a vertex is next to each other in the buffer (check
+	 * the VertexLayout class). The VAO remembers the layout and which
+	 * attributes are enabled, so this only has to be done once
+	 */
+	LAYOUT.apply();
+
+	/*
+	 * the IBO is bound while the VAO is bound, so the VAO remembers it (and
+	 * it doesn't need to be bound again when drawing)
+	 */
+	ibo = QuadIndexBuffer.acquire();
+	GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ibo);
+
+	GL30.glBindVertexArray(0);
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    // start a new frame of drawing
+    public void begin(Camera camera) {
+	if (drawing) {
+	    throw new IllegalStateException("SpriteBatch.begin() was called twice without calling end()");
+	}
+	drawing = true;
+
+	// the camera is the same for the whole frame (check the CameraBuffer class)
+	CameraBuffer.update(camera, window);
+
+	// empty all the groups from the last frame (but keep their arrays)
+	untextured.quads = 0;
+	for (int i = 0; i < buckets.size(); i++) {
+	    buckets.get(i).quads = 0;
+	}
+    }
+
+    /*
+     * add an object to this frame
+     *
+     * nothing is actually drawn until end() is called. The object's mesh has to
+     * be a quad (4 vertices), like the ones made by the Rectangle, Square, and
+     * Circle classes
+     */
+    public void draw(GameObject object) {
+	if (!drawing) {
+	    throw new IllegalStateException("SpriteBatch.draw() was called without calling begin()");
+	}
+
+	Mesh mesh = object.getMesh();
+	Vertex[] vertices = mesh.getVertices();
+	if (vertices.length != 4) {
+	    throw new IllegalArgumentException("SpriteBatch can only draw quads, but the mesh has " + vertices.length
+		    + " vertices");
+	}
+
+	// figure out which group this quad goes in
+	Material material = mesh.getMaterial();
+	Bucket bucket = (material == null) ? untextured : getBucket(material.getTextureID());
+	float shape = mesh.getShape();
+
+	/*
+	 * almost every object isn't moved, rotated, or scaled at all, so only
+	 * transform the vertices if it's actually needed (the object keeps its
+	 * own matrix, so it isn't calculated again every frame)
+	 */
+	Matrix4f transform = null;
+	if (!object.isIdentity()) {
+	    transform = object.getModelMatrix();
+	}
+
+	float[] data = bucket.reserve();
+	int offset = bucket.quads * FLOATS_PER_QUAD;
+	for (int i = 0; i < vertices.length; i++) {
+	    Vector3f position = vertices[i].getPosition();
+	    if (transform != null) {
+		transform.transformPoint(position, scratch);
+		position = scratch;
+	    }
+
+	    data[offset++] = position.getX();
+	    data[offset++] = position.getY();
+	    data[offset++] = position.getZ();
+	    data[offset++] = vertices[i].getColor().getX();
+	    data[offset++] = vertices[i].getColor().getY();
+	    data[offset++] = vertices[i].getColor().getZ();
+	    if (material != null) {
+		// a material in the texture atlas moves the coordinates into its region
+		data[offset++] = material.mapU(vertices[i].getTextureCoord().getX());
+		data[offset++] = material.mapV(vertices[i].getTextureCoord().getY());
+	    } else {
+		data[offset++] = vertices[i].getTextureCoord().getX();
+		data[offset++] = vertices[i].getTextureCoord().getY();
+	    }
+	    data[offset++] = shape;
+	}
+	bucket.quads++;
+    }
+
+    /*
+     * actually draw everything that was added this frame
+     *
+     * every texture gets one draw call (unless there are more than MAX_QUADS
+     * quads with the same texture). The quads without a texture are drawn
+     * along with the first texture
+     */
+    public void end() {
+	if (!drawing) {
+	    throw new IllegalStateException("SpriteBatch.end() was called without calling begin()");
+	}
+	drawing = false;
+
+	// set up everything that is the same for every draw call
+	shader.bind();
+	GL30.glBindVertexArray(vao);
+	GL13.glActiveTexture(GL13.GL_TEXTURE0);
+
+	boolean drewUntextured = false;
+	for (int i = 0; i < buckets.size(); i++) {
+	    Bucket bucket = buckets.get(i);
+	    if (bucket.quads == 0) {
+		continue;
+	    }
+
+	    // the untextured quads ride along with the first texture
+	    if (!drewUntextured) {
+		flush(untextured, bucket, bucket.textureID);
+		drewUntextured = true;
+	    } else {
+		flush(null, bucket, bucket.textureID);
+	    }
+	}
+
+	// if nothing this frame had a texture, the untextured quads are drawn alone
+	if (!drewUntextured) {
+	    flush(untextured, null, 0);
+	}
+
+	// the next frame gets its own region of the streaming buffer
+	vertices.endFrame();
+
+	// unbind everything
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+	GL30.glBindVertexArray(0);
+	shader.unbind();
+    }
+
+    /*
+     * draw two groups of quads (either of which can be null) together with the
+     * given texture
+     *
+     * the quads are copied straight into the streaming buffer, and drawn with
+     * one draw call (or more, if there are more than MAX_QUADS of them). The
+     * base vertex of the draw call tells OpenGL where in the streaming buffer
+     * the quads were put
+     */
+    private void flush(Bucket first, Bucket second, int textureID) {
+	int firstQuads = (first == null) ? 0 : first.quads;
+	int total = firstQuads + ((second == null) ? 0 : second.quads);
+	if (total == 0) {
+	    return;
+	}
+
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureID);
+
+	FloatBuffer data = vertices.getData();
+	int drawn = 0;
+	while (drawn < total) {
+	    int count = Math.min(MAX_QUADS, total - drawn);
+	    int baseVertex = vertices.allocate(count * 4);
+
+	    // copy the quads from the first group, and then the second group
+	    data.position(baseVertex * FLOATS_PER_VERTEX);
+	    int fromFirst = Math.max(0, Math.min(count, firstQuads - drawn));
+	    if (fromFirst > 0) {
+		data.put(first.data, drawn * FLOATS_PER_QUAD, fromFirst * FLOATS_PER_QUAD);
+	    }
+	    if (count > fromFirst) {
+		int start = (drawn + fromFirst) - firstQuads;
+		data.put(second.data, start * FLOATS_PER_QUAD, (count - fromFirst) * FLOATS_PER_QUAD);
+	    }
+	    data.clear();
+	    vertices.commit(baseVertex, count * 4);
+
+	    GL32.glDrawElementsBaseVertex(GL11.GL_TRIANGLES, count * 6, GL11.GL_UNSIGNED_INT, 0, baseVertex);
+	    FrameStats.countDrawCall();
+
+	    drawn += count;
+	}
+    }
+
+    // get the group for the given texture (making a new group if needed)
+    private Bucket getBucket(int textureID) {
+	for (int i = 0; i < buckets.size(); i++) {
+	    if (buckets.get(i).textureID == textureID) {
+		return buckets.get(i);
+	    }
+	}
+
+	Bucket bucket = new Bucket(textureID);
+	buckets.add(bucket);
+	return bucket;
+    }
+
+    // delete all the buffers to free up system resources
+    public void destroy() {
+	vertices.destroy();
+	QuadIndexBuffer.release();
+	GL30.glDeleteVertexArrays(vao);
+    }
+
+    /*
+     * this class holds all the quads for one texture
+     *
+     * the array is kept from frame to frame (and only made bigger when it
+     * needs to be), so drawing doesn't allocate anything once the game is
+     * running
+     */
+    private static class Bucket {
+	// the texture these quads use (0 if they don't use one)
+	private int textureID;
+
+	// the vertex data for the quads
+	private float[] data = new float[FLOATS_PER_QUAD * 64];
+
+	// how many quads are in the group this frame
+	private int quads;
+
+	// the constructor
+	private Bucket(int textureID) {
+	    this.textureID = textureID;
+	}
+
+	// make sure there's room for one more quad and return the array
+	private float[] reserve() {
+	    if ((quads + 1) * FLOATS_PER_QUAD > data.length) {
+		float[] bigger = new float[data.length * 2];
+		System.arraycopy(data, 0, bigger, 0, quads * FLOATS_PER_QUAD);
+		data = bigger;
+	    }
+	    return data;
+	}
+    }
+}
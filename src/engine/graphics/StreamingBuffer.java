@@ -0,0 +1,280 @@
+/*
+ * the StreamingBuffer class
+ *
+ * this class is a VBO for vertices that are written again every frame (like
+ * everything the SpriteBatch draws)
+ *
+ * the buffer is split into three regions, and every frame writes into the next
+ * region. That way the CPU can write this frame's vertices while the GPU is
+ * still drawing the last frame's (or the one before that) out of the other
+ * regions, and neither of them has to wait for the other
+ *
+ * when OpenGL 4.4 is available, the buffer is made with glBufferStorage and
+ * "mapped" once when it's created. Mapping means that we get a pointer straight
+ * to the buffer's memory, so the vertices are written right where the GPU reads
+ * them from - there's no glBufferSubData, and the driver doesn't have to copy
+ * anything. The mapping is "persistent" (it stays mapped while the GPU is
+ * using the buffer) and "coherent" (whatever we write shows up for the GPU
+ * without having to tell OpenGL about it)
+ *
+ * since nothing stops us from writing into a region that the GPU is still
+ * reading from, every region gets a fence when we're done with it (a marker
+ * in OpenGL's list of commands). Before a region is written again, we wait for
+ * its fence - which only actually waits if the GPU is more than two frames
+ * behind
+ *
+ * without OpenGL 4.4 (or when running with -Dpong.persistentBuffers=false),
+ * the vertices are written to memory on the CPU and sent with glBufferSubData,
+ * and the whole buffer is orphaned every time the regions wrap around (check
+ * Mesh.streamData() for what orphaning is)
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL44;
+import org.lwjgl.system.MemoryUtil;
+
+public class StreamingBuffer {
+    // how many regions the buffer is split into
+    public static final int REGIONS = 3;
+
+    /*
+     * how long to wait for a fence each time we check it (in nanoseconds). If
+     * it isn't done yet, we just check again
+     */
+    private static final long FENCE_TIMEOUT = 1000000L;
+
+    // how the vertices are laid out
+    private VertexLayout layout;
+
+    // how many vertices fit in one region
+    private int verticesPerRegion;
+
+    // the VBO
+    private int vbo;
+
+    /*
+     * whether or not the buffer is persistently mapped (if it's not, the
+     * fallback is being used)
+     */
+    private boolean persistent;
+
+    /*
+     * the memory that the vertices are written into (the mapped buffer, or
+     * memory on the CPU for the fallback)
+     */
+    private ByteBuffer memory;
+    private FloatBuffer data;
+
+    // a fence for each region (0 if the region doesn't have one)
+    private long[] fences = new long[REGIONS];
+
+    /*
+     * the region that is being written this frame, and how many vertices in
+     * it have been used
+     */
+    private int region, cursor;
+
+    /*
+     * how many times we actually had to wait for the GPU before writing into a
+     * region (if this keeps going up, the GPU can't keep up)
+     */
+    private int stalls;
+
+    // the constructor
+    public StreamingBuffer(VertexLayout layout, int verticesPerRegion) {
+	this.layout = layout;
+	this.verticesPerRegion = verticesPerRegion;
+    }
+
+    /*
+     * create the VBO
+     *
+     * the VBO is left bound to GL_ARRAY_BUFFER, so that the layout can be set
+     * up for a VAO right after this (the caller should unbind it)
+     */
+    public void create() {
+	long size = (long) verticesPerRegion * REGIONS * layout.getStride();
+
+	persistent = GL.getCapabilities().OpenGL44
+		&& !System.getProperty("pong.persistentBuffers", "true").equals("false");
+
+	vbo = GL15.glGenBuffers();
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+	if (persistent) {
+	    int flags = GL30.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT | GL44.GL_MAP_COHERENT_BIT;
+	    // the storage can never change size after this (unlike glBufferData)
+	    GL44.glBufferStorage(GL15.GL_ARRAY_BUFFER, size, flags);
+	    memory = GL30.glMapBufferRange(GL15.GL_ARRAY_BUFFER, 0, size, flags);
+	}
+	if (memory == null) {
+	    // the fallback (or mapping didn't work)
+	    persistent = false;
+	    GL15.glBufferData(GL15.GL_ARRAY_BUFFER, size, GL15.GL_STREAM_DRAW);
+	    memory = MemoryUtil.memAlloc((int) size);
+	}
+	data = memory.asFloatBuffer();
+
+	region = 0;
+	cursor = 0;
+    }
+
+    /*
+     * make room for some vertices in this frame's region
+     *
+     * this returns the index of the first vertex (in the whole buffer - so it
+     * can be used as the base vertex of a draw call). The vertices should be
+     * written into getData() starting at that index times the floats per
+     * vertex, and then commit() must be called before drawing them
+     *
+     * if the region doesn't have enough room left, we move on to the next one
+     */
+    public int allocate(int vertices) {
+	if (vertices > verticesPerRegion) {
+	    throw new IllegalArgumentException(
+		    "a region only has room for " + verticesPerRegion + " vertices, but " + vertices + " were asked for");
+	}
+	if (cursor + vertices > verticesPerRegion) {
+	    nextRegion();
+	}
+
+	int first = (region * verticesPerRegion) + cursor;
+	cursor += vertices;
+	return first;
+    }
+
+    /*
+     * make sure that the GPU can see the vertices that were just written
+     *
+     * with a persistent, coherent mapping the GPU already sees them, so this
+     * doesn't do anything. With the fallback, the vertices are sent with
+     * glBufferSubData
+     */
+    public void commit(int firstVertex, int vertices) {
+	if (persistent) {
+	    return;
+	}
+
+	int floatsPerVertex = layout.getFloatsPerVertex();
+	data.limit((firstVertex + vertices) * floatsPerVertex).position(firstVertex * floatsPerVertex);
+	GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+	GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, (long) firstVertex * layout.getStride(), data);
+	data.clear();
+    }
+
+    /*
+     * this is called once everything in a frame has been drawn
+     *
+     * the next frame starts in a new region (if anything was written in this
+     * one), so that the GPU can draw this frame while the next one is written
+     */
+    public void endFrame() {
+	if (cursor > 0) {
+	    nextRegion();
+	}
+    }
+
+    /*
+     * put a fence after everything that uses the current region, and then
+     * move on to the next region (waiting for the GPU to be done with it)
+     */
+    private void nextRegion() {
+	if (fences[region] != 0) {
+	    GL32.glDeleteSync(fences[region]);
+	}
+	fences[region] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+
+	region = (region + 1) % REGIONS;
+	cursor = 0;
+	waitFor(region);
+
+	/*
+	 * the fallback orphans the whole buffer every time it wraps around, so
+	 * the driver never has to wait for the GPU either
+	 */
+	if (!persistent && region == 0) {
+	    GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+	    GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) verticesPerRegion * REGIONS * layout.getStride(),
+		    GL15.GL_STREAM_DRAW);
+	}
+    }
+
+    // wait until the GPU is done with a region
+    private void waitFor(int region) {
+	long fence = fences[region];
+	if (fence == 0) {
+	    return;
+	}
+
+	boolean waited = false;
+	while (true) {
+	    int result = GL32.glClientWaitSync(fence, GL32.GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT);
+	    if (result == GL32.GL_ALREADY_SIGNALED || result == GL32.GL_CONDITION_SATISFIED) {
+		break;
+	    }
+	    if (result == GL32.GL_WAIT_FAILED) {
+		System.err.println("ERROR: waiting for a streaming buffer fence failed");
+		break;
+	    }
+	    waited = true;
+	}
+	if (waited) {
+	    stalls++;
+	}
+
+	GL32.glDeleteSync(fence);
+	fences[region] = 0;
+    }
+
+    // delete the VBO and the fences to free up system resources
+    public void destroy() {
+	for (int i = 0; i < REGIONS; i++) {
+	    if (fences[i] != 0) {
+		GL32.glDeleteSync(fences[i]);
+		fences[i] = 0;
+	    }
+	}
+
+	if (persistent) {
+	    GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+	    GL15.glUnmapBuffer(GL15.GL_ARRAY_BUFFER);
+	    GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+	} else if (memory != null) {
+	    MemoryUtil.memFree(memory);
+	}
+	memory = null;
+	data = null;
+
+	GL15.glDeleteBuffers(vbo);
+    }
+
+    // the following methods are getters
+    public int getVBO() {
+	return vbo;
+    }
+
+    /*
+     * the memory to write the vertices into (use absolute indexes from
+     * allocate(), or set the position yourself)
+     */
+    public FloatBuffer getData() {
+	return data;
+    }
+
+    public boolean isPersistent() {
+	return persistent;
+    }
+
+    public int getStalls() {
+	return stalls;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * the TextureAtlas class
+ *
+ * this class packs lots of small textures (sprites) into one big texture
+ *
+ * every texture that is bound costs a state change, and the SpriteBatch and
+ * the Renderer have to start a new draw call every time the texture changes.
+ * If every sprite is in the same texture, everything can be drawn with that one
+ * texture bound
+ *
+ * the sprites are packed when the game starts (in create()). The images are
+ * decoded at the same time on the TextureLoader's worker threads. Each sprite
+ * gets a region of the atlas, which says where in the atlas it ended up (in
+ * texture coordinates). A material whose path is in the atlas uses the atlas texture
+ * and maps its texture coordinates into its region (check the Material class)
+ *
+ * sprites are packed in "shelves": the sprites are sorted from tallest to
+ * shortest, and then put next to each other in rows. When a row is full, a new
+ * row is started above it. The atlas starts out big enough to hold all the
+ * sprites (if they packed perfectly) and doubles in size until they all fit
+ *
+ * a sprite is looked up by its whole resource path ("/textures/Heart.png"), so
+ * two textures with the same file name in different folders are different
+ * sprites
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.system.MemoryUtil;
+
+public class TextureAtlas {
+    /*
+     * how many empty pixels are left around every sprite (so that a sprite
+     * never picks up pixels from the sprite next to it)
+     */
+    private static final int PADDING = 2;
+
+    // the atlas texture (0 if there isn't one)
+    private static int textureID;
+
+    // the size of the atlas (it's always square)
+    private static int size;
+
+    // the region of every sprite in the atlas (the key is the sprite's path)
+    private static HashMap<String, Region> regions = new HashMap<String, Region>();
+
+    /*
+     * load all the given textures and pack them into the atlas
+     *
+     * this has to happen after the window is created and before any meshes
+     * are created (so that their materials can find their sprites). A texture
+     * that can't be loaded or doesn't fit in the atlas is just left out - its
+     * materials load it by themselves like normal
+     */
+    public static void create(String... paths) {
+	/*
+	 * decode all the images at the same time on the TextureLoader's worker
+	 * threads, and then wait for all of them
+	 */
+	ArrayList<Future<TextureLoader.Image>> decoding = new ArrayList<Future<TextureLoader.Image>>();
+	for (int i = 0; i < paths.length; i++) {
+	    decoding.add(TextureLoader.decodeAsync(paths[i]));
+	}
+	ArrayList<Sprite> sprites = new ArrayList<Sprite>();
+	long area = 0;
+	for (int i = 0; i < decoding.size(); i++) {
+	    TextureLoader.Image image = null;
+	    try {
+		image = decoding.get(i).get();
+	    } catch (InterruptedException | ExecutionException e) {
+		System.err.println("Can't load the texture at " + paths[i] + ": " + e.getMessage());
+	    }
+	    if (image != null) {
+		Sprite sprite = new Sprite(image);
+		sprites.add(sprite);
+		area += (long) (sprite.width + PADDING) * (sprite.height + PADDING);
+	    }
+	}
+	if (sprites.isEmpty()) {
+	    return;
+	}
+
+	// pack the tallest sprites first (so that the rows waste less space)
+	sprites.sort((a, b) -> b.height - a.height);
+
+	/*
+	 * start with the smallest power of 2 that could hold all the sprites,
+	 * and make the atlas bigger until they all fit
+	 */
+	int maxSize = GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE);
+	size = 1;
+	while ((long) size * size < area && size < maxSize) {
+	    size *= 2;
+	}
+	while (!pack(sprites, size) && size < maxSize) {
+	    size *= 2;
+	}
+
+	// copy all the sprites that fit into one image
+	ByteBuffer pixels = MemoryUtil.memCalloc(size * size * 4);
+	for (int i = 0; i < sprites.size(); i++) {
+	    Sprite sprite = sprites.get(i);
+	    if (sprite.x < 0) {
+		System.err.println("the texture at " + sprite.image.getPath() + " doesn't fit in the texture atlas");
+	    } else {
+		for (int row = 0; row < sprite.height; row++) {
+		    MemoryUtil.memCopy(MemoryUtil.memAddress(sprite.image.getPixels()) + ((long) row * sprite.width * 4),
+			    MemoryUtil.memAddress(pixels) + ((((long) (sprite.y + row) * size) + sprite.x) * 4),
+			    (long) sprite.width * 4);
+		}
+		regions.put(sprite.image.getPath(),
+			new Region((float) sprite.x / size, (float) sprite.y / size,
+				(float) (sprite.x + sprite.width) / size, (float) (sprite.y + sprite.height) / size,
+				sprite.width, sprite.height));
+	    }
+	    sprite.image.free();
+	}
+
+	/*
+	 * send the atlas to the GPU
+	 *
+	 * GL_NEAREST keeps the sprites rigid (like the textures used to be) and
+	 * GL_CLAMP_TO_EDGE stops the edges of the atlas from wrapping around
+	 */
+	textureID = GL11.glGenTextures();
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureID);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+	GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, size, size, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE,
+		pixels);
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+	MemoryUtil.memFree(pixels);
+
+	System.out.println("packed " + regions.size() + " textures into a " + size + "x" + size + " texture atlas");
+    }
+
+    /*
+     * try to pack the sprites into an atlas of the given size (this sets the
+     * position of every sprite)
+     *
+     * this returns false if not every sprite fit (the ones that didn't fit have
+     * their x set to -1)
+     */
+    private static boolean pack(ArrayList<Sprite> sprites, int size) {
+	boolean allFit = true;
+	// where the next sprite goes, and how tall the current row is
+	int x = 0, y = 0, rowHeight = 0;
+	for (int i = 0; i < sprites.size(); i++) {
+	    Sprite sprite = sprites.get(i);
+	    int width = sprite.width + PADDING, height = sprite.height + PADDING;
+
+	    // start a new row if this one is full
+	    if (x + width > size) {
+		x = 0;
+		y += rowHeight;
+		rowHeight = 0;
+	    }
+
+	    if (width > size || y + height > size) {
+		sprite.x = -1;
+		allFit = false;
+		continue;
+	    }
+
+	    sprite.x = x;
+	    sprite.y = y;
+	    x += width;
+	    rowHeight = Math.max(rowHeight, height);
+	}
+	return allFit;
+    }
+
+    /*
+     * get the region of a sprite (by its path)
+     *
+     * this returns null if the sprite isn't in the atlas
+     */
+    public static Region getRegion(String path) {
+	if (path == null) {
+	    return null;
+	}
+	return regions.get(path);
+    }
+
+    // delete the atlas texture to free up system resources
+    public static void destroy() {
+	if (textureID != 0) {
+	    GL11.glDeleteTextures(textureID);
+	    textureID = 0;
+	}
+	regions.clear();
+    }
+
+    // the following methods are getters
+    public static int getTextureID() {
+	return textureID;
+    }
+
+    public static int getSize() {
+	return size;
+    }
+
+    /*
+     * this class holds where one sprite is in the atlas
+     *
+     * (u0, v0) is the top left corner of the sprite and (u1, v1) is its bottom
+     * right corner, in texture coordinates of the whole atlas
+     */
+    public static class Region {
+	private float u0, v0, u1, v1;
+
+	// the size of the sprite in pixels
+	private int width, height;
+
+	// the constructor
+	private Region(float u0, float v0, float u1, float v1, int width, int height) {
+	    this.u0 = u0;
+	    this.v0 = v0;
+	    this.u1 = u1;
+	    this.v1 = v1;
+	    this.width = width;
+	    this.height = height;
+	}
+
+	// the following methods are getters
+	public float getU0() {
+	    return u0;
+	}
+
+	public float getV0() {
+	    return v0;
+	}
+
+	public float getU1() {
+	    return u1;
+	}
+
+	public float getV1() {
+	    return v1;
+	}
+
+	public int getWidth() {
+	    return width;
+	}
+
+	public int getHeight() {
+	    return height;
+	}
+    }
+
+    // this class holds a sprite while it's being packed
+    private static class Sprite {
+	private TextureLoader.Image image;
+	private int width, height;
+
+	// where the sprite goes in the atlas (x is -1 if it didn't fit)
+	private int x, y;
+
+	// the constructor
+	private Sprite(TextureLoader.Image image) {
+	    this.image = image;
+	    this.width = image.getWidth();
+	    this.height = image.getHeight();
+	}
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * the TextureCache class
+ *
+ * this class makes sure that every texture file is only loaded once, no matter
+ * how many materials use it
+ *
+ * every material that wants a texture "acquires" it by its path. The first
+ * time a path is acquired the texture is made on the GPU and starts loading.
+ * After that, everyone who asks for the same path just gets the same texture
+ * ID back. When a material is done with the texture it "releases" it, and once
+ * nobody is using the texture anymore it gets deleted from the GPU
+ *
+ * the image itself is loaded in the background by the TextureLoader class.
+ * Until it's done, the texture holds a placeholder (one see through pixel).
+ * The texture ID never changes, so nothing that uses the texture has to know
+ * whether it's done loading
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.system.MemoryStack;
+
+public class TextureCache {
+    // all the textures that are currently loaded (the key is the file path)
+    private static HashMap<String, Entry> textures = new HashMap<String, Entry>();
+
+    /*
+     * get the texture at the given path (starting to load it if it hasn't been
+     * loaded yet)
+     *
+     * every call to this method must be matched with a call to release() once
+     * the texture isn't needed anymore
+     *
+     * the texture might not be loaded yet (check Entry.isReady()), but its
+     * texture ID can be used right away
+     */
+    public static Entry acquire(String path) {
+	Entry entry = textures.get(path);
+
+	// if the texture hasn't been loaded yet, load it
+	if (entry == null) {
+	    entry = load(path);
+	    textures.put(path, entry);
+	}
+
+	// keep track of one more material using this texture
+	entry.references++;
+	return entry;
+    }
+
+    /*
+     * tell the cache that one of the materials using this texture is done
+     * with it
+     *
+     * the texture is only deleted from the GPU once the last material using it
+     * has released it
+     */
+    public static void release(String path) {
+	Entry entry = textures.get(path);
+	if (entry == null) {
+	    return;
+	}
+
+	entry.references--;
+	if (entry.references <= 0) {
+	    GL11.glDeleteTextures(entry.textureID);
+	    // this also tells the TextureLoader to stop loading it
+	    entry.textureID = 0;
+	    textures.remove(path);
+	}
+    }
+
+    // how many different textures are currently loaded
+    public static int size() {
+	return textures.size();
+    }
+
+    /*
+     * make the texture (with the placeholder in it) and start loading the
+     * image into it
+     */
+    private static Entry load(String path) {
+	int textureID = GL11.glGenTextures();
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureID);
+
+	/*
+	 * GL_NEAREST keeps the images rigid (GL_LINEAR would blur them to fit
+	 * the mesh)
+	 */
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+	GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+
+	// the placeholder is one see through pixel
+	try (MemoryStack stack = MemoryStack.stackPush()) {
+	    ByteBuffer placeholder = stack.calloc(4);
+	    GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, 1, 1, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE,
+		    placeholder);
+	}
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+
+	Entry entry = new Entry(textureID);
+	TextureLoader.load(path, entry);
+	return entry;
+    }
+
+    /*
+     * this class holds the information about one loaded texture
+     *
+     * it's shared by every material that uses the same texture file
+     */
+    public static class Entry {
+	// the texture ID (on the GPU)
+	private int textureID;
+
+	/*
+	 * the width and height of the texture (both 0 until the image has been
+	 * loaded)
+	 */
+	private float width, height;
+
+	/*
+	 * whether or not the image has been loaded (this is only ever changed on
+	 * the OpenGL thread)
+	 */
+	private boolean ready;
+
+	// how many materials are currently using this texture
+	private int references;
+
+	// the constructor
+	private Entry(int textureID) {
+	    this.textureID = textureID;
+	}
+
+	// the TextureLoader calls this once the whole image has been sent
+	void setSize(int width, int height) {
+	    this.width = width;
+	    this.height = height;
+	    ready = true;
+	}
+
+	// the following methods are getters
+	public int getTextureID() {
+	    return textureID;
+	}
+
+	public float getWidth() {
+	    return width;
+	}
+
+	public float getHeight() {
+	    return height;
+	}
+
+	public boolean isReady() {
+	    return ready;
+	}
+
+	public int getReferences() {
+	    return references;
+	}
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * the TextureLoader class
+ *
+ * this class loads textures without stopping the game while it happens
+ *
+ * loading a texture has two slow parts: decoding the image file (turning the
+ * PNG into pixels) and sending the pixels to the GPU. Decoding doesn't need
+ * OpenGL at all, so it's done by a few worker threads in the background (with
+ * stb, which is already part of LWJGL). Sending the pixels has to happen on
+ * the thread that owns the OpenGL context, so update() does it once per frame -
+ * but only for a small amount of time (the "budget"), so that a big texture
+ * can't make one frame take much longer than the others
+ *
+ * the pixels are sent through a pixel buffer object (a PBO). The pixels are
+ * copied into the PBO, and glTexSubImage2D reads them out of the PBO instead of
+ * out of our memory. That means OpenGL doesn't have to copy them again before
+ * it returns, and the driver can send them to the GPU whenever it wants to
+ *
+ * big textures are sent a few rows at a time (CHUNK_BYTES at most), so even
+ * they are spread out over a few frames
+ *
+ * the texture ID that a texture will end up in is made right away (by the
+ * TextureCache) and holds a placeholder until the real pixels are sent, so
+ * nothing has to wait for the texture or be told when it's done
+ *
+ * the budget can be changed with -Dpong.textureUploadBudget=<milliseconds>
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL44;
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+public class TextureLoader {
+    // the most bytes that are sent to the GPU with one glTexSubImage2D
+    private static final int CHUNK_BYTES = 256 * 1024;
+
+    /*
+     * how long update() is allowed to spend sending pixels each frame (in
+     * nanoseconds). At least one chunk is always sent, so loading never stops
+     */
+    private static final long BUDGET = (long) (Float.parseFloat(System.getProperty("pong.textureUploadBudget", "1"))
+	    * 1000000L);
+
+    /*
+     * the worker threads that decode the images
+     *
+     * they're daemon threads, so they never stop the game from closing. One
+     * core is left for the game itself
+     */
+    private static ExecutorService workers;
+
+    /*
+     * the images that have been decoded and are waiting to be sent to the GPU
+     * (the workers add to this and the OpenGL thread takes from it)
+     */
+    private static ConcurrentLinkedQueue<Upload> decoded = new ConcurrentLinkedQueue<Upload>();
+
+    /*
+     * the uploads that have been started but not finished yet (only used on
+     * the OpenGL thread)
+     */
+    private static ArrayDeque<Upload> uploading = new ArrayDeque<Upload>();
+
+    // how many textures have been asked for and aren't on the GPU yet
+    private static AtomicInteger pending = new AtomicInteger();
+
+    // the PBO (0 if it hasn't been made yet)
+    private static int pbo;
+
+    /*
+     * decode an image on a worker thread
+     *
+     * the image (or null, if it can't be loaded) can be picked up from the
+     * Future once it's done. Whoever picks it up has to free() it
+     */
+    public static Future<Image> decodeAsync(String path) {
+	return workers().submit(() -> decode(path));
+    }
+
+    /*
+     * decode an image right now, on this thread (this returns null if it
+     * can't be loaded)
+     *
+     * the image has to be free()d once it's not needed anymore
+     *
+     * the file is read into a direct ByteBuffer from Java (not one from
+     * MemoryUtil), because this usually runs on a worker thread in the middle
+     * of the game. LWJGL doesn't track Java's direct buffers, so a decode that
+     * is still going at the end of a frame doesn't look like a leak to the
+     * AllocationTracker, and the garbage collector frees the buffer
+     */
+    public static Image decode(String path) {
+	ByteBuffer file = null;
+	try (InputStream in = TextureLoader.class.getResourceAsStream(path)) {
+	    if (in == null) {
+		System.err.println("Can't find the texture at " + path);
+		return null;
+	    }
+	    byte[] bytes = in.readAllBytes();
+	    file = ByteBuffer.allocateDirect(bytes.length);
+	    file.put(bytes).flip();
+	} catch (IOException e) {
+	    System.err.println("Can't read the texture at " + path);
+	    return null;
+	}
+
+	Image image = null;
+	try (MemoryStack stack = MemoryStack.stackPush()) {
+	    IntBuffer width = stack.mallocInt(1), height = stack.mallocInt(1), channels = stack.mallocInt(1);
+	    // the last argument asks for 4 channels (RGBA) no matter what the file has
+	    ByteBuffer pixels = STBImage.stbi_load_from_memory(file, width, height, channels, 4);
+	    if (pixels == null) {
+		System.err.println("Can't decode the texture at " + path + ": " + STBImage.stbi_failure_reason());
+	    } else {
+		image = new Image(path, pixels, width.get(0), height.get(0));
+	    }
+	}
+	return image;
+    }
+
+    /*
+     * start loading a texture into the given entry of the TextureCache
+     *
+     * the image is decoded in the background, and update() sends it to the
+     * entry's texture once it's ready
+     */
+    static void load(String path, TextureCache.Entry entry) {
+	pending.incrementAndGet();
+	workers().execute(() -> {
+	    Image image = decode(path);
+	    if (image == null) {
+		// the entry just keeps its placeholder
+		pending.decrementAndGet();
+		return;
+	    }
+	    decoded.add(new Upload(image, entry));
+	});
+    }
+
+    /*
+     * send decoded images to the GPU (this has to be called on the OpenGL
+     * thread, once per frame)
+     *
+     * this stops once it has used up the budget for this frame, and carries on
+     * where it left off the next frame
+     */
+    public static void update() {
+	Upload upload;
+	while ((upload = decoded.poll()) != null) {
+	    uploading.add(upload);
+	}
+	if (uploading.isEmpty()) {
+	    return;
+	}
+
+	long start = System.nanoTime();
+	do {
+	    upload = uploading.peek();
+
+	    // the texture was deleted while it was being loaded
+	    if (upload.entry.getTextureID() == 0) {
+		finish(upload);
+		continue;
+	    }
+
+	    if (upload.row == 0) {
+		begin(upload);
+	    }
+	    sendChunk(upload);
+	    if (upload.row >= upload.image.height) {
+		upload.entry.setSize(upload.image.width, upload.image.height);
+		finish(upload);
+	    }
+	} while (!uploading.isEmpty() && System.nanoTime() - start < BUDGET);
+
+	GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+    }
+
+    /*
+     * give an entry's texture the size of its image (replacing the
+     * placeholder)
+     *
+     * until all the rows have been sent, the texture is cleared to be see
+     * through (if the driver can do that), so the half-sent texture never
+     * shows garbage
+     */
+    private static void begin(Upload upload) {
+	GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, 0);
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, upload.entry.getTextureID());
+	GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, upload.image.width, upload.image.height, 0,
+		GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+	if (GL.getCapabilities().OpenGL44) {
+	    GL44.glClearTexImage(upload.entry.getTextureID(), 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE,
+		    (ByteBuffer) null);
+	}
+    }
+
+    // send the next few rows of an image to its texture through the PBO
+    private static void sendChunk(Upload upload) {
+	Image image = upload.image;
+	int rowBytes = image.width * 4;
+	int rows = Math.min(Math.max(1, CHUNK_BYTES / rowBytes), image.height - upload.row);
+	long bytes = (long) rows * rowBytes;
+
+	if (pbo == 0) {
+	    pbo = GL15.glGenBuffers();
+	}
+	GL15.glBindBuffer(GL21.GL_PIXEL_UNPACK_BUFFER, pbo);
+	/*
+	 * orphan the PBO every time (check Mesh.streamData() for what orphaning
+	 * is), so that we never have to wait for the last chunk to be read
+	 */
+	GL15.glBufferData(GL21.GL_PIXEL_UNPACK_BUFFER, bytes, GL15.GL_STREAM_DRAW);
+	ByteBuffer memory = GL30.glMapBufferRange(GL21.GL_PIXEL_UNPACK_BUFFER, 0, bytes,
+		GL30.GL_MAP_WRITE_BIT | GL30.GL_MAP_INVALIDATE_BUFFER_BIT);
+	if (memory == null) {
+	    System.err.println("ERROR: couldn't map the PBO to send " + image.path);
+	    upload.row = image.height;
+	    return;
+	}
+	MemoryUtil.memCopy(MemoryUtil.memAddress(image.pixels) + ((long) upload.row * rowBytes),
+		MemoryUtil.memAddress(memory), bytes);
+	GL15.glUnmapBuffer(GL21.GL_PIXEL_UNPACK_BUFFER);
+
+	GL11.glBindTexture(GL11.GL_TEXTURE_2D, upload.entry.getTextureID());
+	// with a PBO bound, the last argument is an offset into the PBO
+	GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, upload.row, image.width, rows, GL11.GL_RGBA,
+		GL11.GL_UNSIGNED_BYTE, 0L);
+	upload.row += rows;
+    }
+
+    // an upload is done (or not needed anymore), so free its pixels
+    private static void finish(Upload upload) {
+	uploading.poll();
+	upload.image.free();
+	pending.decrementAndGet();
+    }
+
+    // get the worker threads (making them the first time)
+    private static synchronized ExecutorService workers() {
+	if (workers == null) {
+	    int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+	    AtomicInteger count = new AtomicInteger();
+	    workers = Executors.newFixedThreadPool(threads, (runnable) -> {
+		Thread thread = new Thread(runnable, "texture loader " + count.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	    });
+	}
+	return workers;
+    }
+
+    /*
+     * stop the worker threads and delete the PBO to free up system resources
+     * (anything that hasn't been sent yet is thrown away)
+     */
+    public static synchronized void destroy() {
+	if (workers != null) {
+	    workers.shutdownNow();
+	    workers = null;
+	}
+
+	Upload upload;
+	while ((upload = decoded.poll()) != null) {
+	    upload.image.free();
+	}
+	while ((upload = uploading.poll()) != null) {
+	    upload.image.free();
+	}
+	pending.set(0);
+
+	if (pbo != 0) {
+	    GL15.glDeleteBuffers(pbo);
+	    pbo = 0;
+	}
+    }
+
+    // the following methods are getters
+    public static int getPending() {
+	return pending.get();
+    }
+
+    /*
+     * this class holds a decoded image (RGBA, 4 bytes per pixel)
+     *
+     * the pixels are outside of the Java heap, so free() has to be called once
+     * the image isn't needed anymore
+     */
+    public static class Image {
+	private String path;
+	private ByteBuffer pixels;
+	private int width, height;
+
+	// the constructor
+	private Image(String path, ByteBuffer pixels, int width, int height) {
+	    this.path = path;
+	    this.pixels = pixels;
+	    this.width = width;
+	    this.height = height;
+	}
+
+	// free the pixels
+	public void free() {
+	    if (pixels != null) {
+		STBImage.stbi_image_free(pixels);
+		pixels = null;
+	    }
+	}
+
+	// the following methods are getters
+	public String getPath() {
+	    return path;
+	}
+
+	public ByteBuffer getPixels() {
+	    return pixels;
+	}
+
+	public int getWidth() {
+	    return width;
+	}
+
+	public int getHeight() {
+	    return height;
+	}
+    }
+
+    // this class holds an image that is being sent to its texture
+    private static class Upload {
+	private Image image;
+	private TextureCache.Entry entry;
+
+	// the next row of the image to send
+	private int row;
+
+	// the constructor
+	private Upload(Image image, TextureCache.Entry entry) {
+	    this.image = image;
+	    this.entry = entry;
+	}
+    }
+}
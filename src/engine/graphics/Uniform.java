@@ -0,0 +1,101 @@
+/*
+ * the Uniform class
+ *
+ * this class is a handle to one uniform in a shader program
+ *
+ * looking up a uniform by its name means asking OpenGL (or at least hashing
+ * the name) every time. Instead, whoever uses the uniform every frame (like the
+ * Renderer) can ask the shader for a Uniform once and hold on to it. Then
+ * setting the uniform is just a single OpenGL call with a location that's
+ * already known
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import org.lwjgl.opengl.GL20;
+
+import engine.maths.Matrix4f;
+import engine.maths.Vector2f;
+import engine.maths.Vector3f;
+import engine.utils.FrameStats;
+
+public class Uniform {
+    // the shader program this uniform belongs to
+    private Shader shader;
+
+    // the name of the uniform (only used for debugging)
+    private String name;
+
+    /*
+     * the location of the uniform in the shader program
+     *
+     * if the uniform doesn't exist in the program (or the compiler removed it
+     * because it isn't used) this is -1. OpenGL just ignores uniforms at
+     * location -1, so setting them won't do anything
+     */
+    private int location;
+
+    // the constructor (uniforms are only made by the Shader class)
+    Uniform(Shader shader, String name, int location) {
+	this.shader = shader;
+	this.name = name;
+	this.location = location;
+    }
+
+    /*
+     * the following six methods use method overloading to set up different
+     * types of uniforms using different data types (they mirror the
+     * setUniform() methods in the Shader class)
+     *
+     * the shader must be bound before any of these are called
+     */
+    public void set(float value) {
+	GL20.glUniform1f(location, value);
+	FrameStats.countUniformUpload();
+    }
+
+    public void set(int value) {
+	GL20.glUniform1i(location, value);
+	FrameStats.countUniformUpload();
+    }
+
+    public void set(boolean value) {
+	/*
+	 * since we can't pass in a boolean, we pass in 1 if value is true and 0
+	 * if it's false
+	 */
+	GL20.glUniform1i(location, value ? 1 : 0);
+	FrameStats.countUniformUpload();
+    }
+
+    public void set(Vector2f value) {
+	GL20.glUniform2f(location, value.getX(), value.getY());
+	FrameStats.countUniformUpload();
+    }
+
+    public void set(Vector3f value) {
+	GL20.glUniform3f(location, value.getX(), value.getY(), value.getZ());
+	FrameStats.countUniformUpload();
+    }
+
+    public void set(Matrix4f value) {
+	shader.uploadMatrix(location, value);
+	FrameStats.countUniformUpload();
+    }
+
+    // the following methods are getters
+    public String getName() {
+	return name;
+    }
+
+    public int getLocation() {
+	return location;
+    }
+
+    // whether or not the uniform actually exists in the shader program
+    public boolean exists() {
+	return location != -1;
+    }
+}
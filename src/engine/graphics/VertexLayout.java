@@ -0,0 +1,107 @@
+/*
+ * the VertexLayout class
+ *
+ * this class describes how the data for each vertex is laid out in a buffer
+ *
+ * all the data for one vertex (its position, color, etc.) is stored next to
+ * each other in one buffer, and then the data for the next vertex comes right
+ * after it. This is called "interleaving". It means that one buffer can hold
+ * everything (instead of one buffer for positions, one for colors, and so on),
+ * and when the GPU reads a vertex all of its data is in the same place
+ *
+ * each attribute is made of some number of floats. The attributes are given to
+ * the constructor in order, and the first one goes in location 0 in the
+ * shader, the second one in location 1, and so on
+ *
+ * Aidin Yazdi
+ */
+
+package engine.graphics;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+
+public class VertexLayout {
+    /*
+     * the layout used by meshes: the position (3 floats), the color (3
+     * floats), and the texture coordinates (2 floats)
+     */
+    public static final VertexLayout STANDARD = new VertexLayout(3, 3, 2);
+
+    // how many floats are in each attribute
+    private int[] sizes;
+
+    /*
+     * how many floats into the vertex each attribute starts (its offset)
+     */
+    private int[] offsets;
+
+    // how many floats make up one whole vertex
+    private int floatsPerVertex;
+
+    /*
+     * the constructor
+     *
+     * each argument is how many floats are in an attribute (for example, 3
+     * for a position or 2 for texture coordinates)
+     */
+    public VertexLayout(int... sizes) {
+	this.sizes = sizes.clone();
+	this.offsets = new int[sizes.length];
+
+	for (int i = 0; i < sizes.length; i++) {
+	    offsets[i] = floatsPerVertex;
+	    floatsPerVertex += sizes[i];
+	}
+    }
+
+    /*
+     * tell OpenGL about this layout
+     *
+     * the VAO and the VBO that holds the vertices must both be bound. The VAO
+     * remembers all of this (including that the attributes are enabled), so
+     * this only has to be done once for each VAO
+     */
+    public void apply() {
+	apply(0);
+    }
+
+    /*
+     * this does the same thing as apply(), but the first attribute goes in
+     * "firstLocation" instead of location 0 (so that a second buffer, like an
+     * InstanceBuffer, can go after the mesh's own attributes)
+     */
+    public void apply(int firstLocation) {
+	for (int i = 0; i < sizes.length; i++) {
+	    /*
+	     * the stride is how far apart two vertices are in the buffer, and the
+	     * offset is where in the vertex this attribute starts (both in bytes)
+	     */
+	    GL20.glVertexAttribPointer(firstLocation + i, sizes[i], GL11.GL_FLOAT, false, getStride(),
+		    (long) offsets[i] * Float.BYTES);
+	    GL20.glEnableVertexAttribArray(firstLocation + i);
+	}
+    }
+
+    // the following methods are getters
+    public int getFloatsPerVertex() {
+	return floatsPerVertex;
+    }
+
+    // how many bytes make up one whole vertex
+    public int getStride() {
+	return floatsPerVertex * Float.BYTES;
+    }
+
+    public int getAttributeCount() {
+	return sizes.length;
+    }
+
+    public int getSize(int attribute) {
+	return sizes[attribute];
+    }
+
+    public int getOffset(int attribute) {
+	return offsets[attribute];
+    }
+}
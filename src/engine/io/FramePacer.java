@@ -0,0 +1,210 @@
+/*
+ * the FramePacer class
+ *
+ * this class decides how fast frames are drawn, and keeps track of how evenly
+ * they're drawn
+ *
+ * there are four ways to pace the frames (the "mode"), which can be picked by
+ * running the game with -Dpong.pacing=<mode>:
+ *
+ * "vsync" - wait for the monitor before swapping the buffers (the default).
+ * This is smooth, but a frame that misses the monitor has to wait a whole
+ * extra refresh
+ *
+ * "adaptive" - like vsync, but a frame that misses the monitor is shown right
+ * away instead of waiting (it might tear a little). This uses a swap interval
+ * of -1, which only works if the driver has the EXT_swap_control_tear
+ * extension - otherwise it's just vsync
+ *
+ * "uncapped" - draw frames as fast as possible (for benchmarks)
+ *
+ * "limit" - draw frames at -Dpong.fpsLimit frames per second (60 by default)
+ * without vsync. After every frame, the CPU sleeps until just before the next
+ * frame should start, and then spins (checks the time over and over) for the
+ * last bit. Sleeping alone isn't precise enough (it can oversleep by a
+ * millisecond or more), and spinning the whole time would waste a core
+ *
+ * the time between frames is measured for every frame, and report() gives its
+ * average, standard deviation, and maximum since the last report. A small
+ * standard deviation means the frames are evenly paced (smooth)
+ *
+ * Aidin Yazdi
+ */
+
+package engine.io;
+
+import org.lwjgl.glfw.GLFW;
+
+public class FramePacer {
+    // the mode (check the comment at the top)
+    private static final String MODE = System.getProperty("pong.pacing", "vsync");
+
+    // the frame rate for the "limit" mode
+    private static final double FPS_LIMIT = Double.parseDouble(System.getProperty("pong.fpsLimit", "60"));
+
+    /*
+     * how long before a frame should start the limiter stops sleeping and
+     * starts spinning (in nanoseconds)
+     */
+    private static final long SPIN_TIME = 2000000L;
+
+    // whether or not the limiter is being used
+    private static boolean limiting;
+
+    // how long one frame should take with the limiter (in nanoseconds)
+    private static long frameLength;
+
+    // when the next frame should start (for the limiter)
+    private static long deadline;
+
+    // when the last frame ended (0 before the first frame)
+    private static long lastFrame;
+
+    /*
+     * the time between frames since the last report (in milliseconds): how
+     * many frames, their average, the sum of the squared differences from the
+     * average (for the variance), and the longest one
+     */
+    private static int samples;
+    private static double mean, squares, longest;
+
+    /*
+     * set up the pacing for the current context
+     *
+     * this has to be called after the context is made current. "window" is
+     * the GLFW window (0 if the context was made without GLFW). In headless
+     * mode there's no monitor to wait for, so "vsync" and "adaptive" act like
+     * "uncapped"
+     */
+    public static void create(long window, boolean headless) {
+	limiting = false;
+	int interval = 0;
+
+	if (MODE.equals("limit")) {
+	    limiting = true;
+	    frameLength = (long) (1000000000.0 / FPS_LIMIT);
+	} else if (headless || MODE.equals("uncapped")) {
+	    interval = 0;
+	} else if (MODE.equals("adaptive")) {
+	    if (GLFW.glfwExtensionSupported("GLX_EXT_swap_control_tear")
+		    || GLFW.glfwExtensionSupported("WGL_EXT_swap_control_tear")) {
+		interval = -1;
+	    } else {
+		System.out.println("adaptive vsync isn't supported, so vsync is being used instead");
+		interval = 1;
+	    }
+	} else {
+	    if (!MODE.equals("vsync")) {
+		System.err.println("there's no frame pacing mode called \"" + MODE + "\", so vsync is being used");
+	    }
+	    interval = 1;
+	}
+
+	// only a GLFW context has a swap interval
+	if (window != 0) {
+	    GLFW.glfwSwapInterval(interval);
+	}
+
+	deadline = 0;
+	lastFrame = 0;
+    }
+
+    /*
+     * call this right after the buffers are swapped
+     *
+     * with the limiter, this waits until the next frame should start. Then it
+     * measures how long the frame took
+     */
+    public static void endFrame() {
+	if (limiting) {
+	    waitForDeadline();
+	}
+
+	long now = System.nanoTime();
+	if (lastFrame != 0) {
+	    addSample((now - lastFrame) / 1000000.0);
+	}
+	lastFrame = now;
+    }
+
+    // sleep and then spin until the next frame should start
+    private static void waitForDeadline() {
+	long now = System.nanoTime();
+	if (deadline == 0 || now - deadline > frameLength) {
+	    /*
+	     * the first frame (or we fell more than a whole frame behind), so
+	     * don't try to catch up - just start again from now
+	     */
+	    deadline = now + frameLength;
+	    return;
+	}
+
+	long sleep = deadline - now - SPIN_TIME;
+	if (sleep > 0) {
+	    try {
+		Thread.sleep(sleep / 1000000L, (int) (sleep % 1000000L));
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	}
+	while (System.nanoTime() < deadline) {
+	    Thread.onSpinWait();
+	}
+
+	/*
+	 * the next deadline is one frame after this one (not one frame after
+	 * now), so being a little late one frame doesn't make every frame after
+	 * it late too
+	 */
+	deadline += frameLength;
+    }
+
+    /*
+     * add one frame time to the statistics
+     *
+     * this uses Welford's method, which keeps the variance accurate without
+     * having to store every frame time
+     */
+    private static void addSample(double milliseconds) {
+	samples++;
+	double difference = milliseconds - mean;
+	mean += difference / samples;
+	squares += difference * (milliseconds - mean);
+	longest = Math.max(longest, milliseconds);
+    }
+
+    /*
+     * the average, standard deviation, and longest time between frames since
+     * the last report (this is printed next to the FPS once per second)
+     */
+    public static String report() {
+	String result = String.format("frame ms: %.2f avg, %.3f sd, %.2f max (%s)", mean, getStandardDeviation(),
+		longest, limiting ? "limit " + FPS_LIMIT : MODE);
+	samples = 0;
+	mean = 0;
+	squares = 0;
+	longest = 0;
+	return result;
+    }
+
+    // the following methods are getters (for the frames since the last report)
+    public static double getAverage() {
+	return mean;
+    }
+
+    public static double getVariance() {
+	return (samples < 2) ? 0 : squares / (samples - 1);
+    }
+
+    public static double getStandardDeviation() {
+	return Math.sqrt(getVariance());
+    }
+
+    public static double getLongest() {
+	return longest;
+    }
+
+    public static String getMode() {
+	return MODE;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * the HeadlessContext class
+ *
+ * this class makes an OpenGL context without a window (and without a display),
+ * using EGL instead of GLFW
+ *
+ * GLFW always needs a display to make a context, even for a hidden window, so
+ * it can't be used on a machine that doesn't have one (like a build server).
+ * EGL can make a context on its own. Nothing is ever shown on the screen, so
+ * the Window class draws into a framebuffer object instead (check the
+ * Framebuffer class)
+ *
+ * the context is made with a tiny 1x1 "pbuffer" surface (EGL's version of an
+ * offscreen window) just so that it can be made current - nothing is ever drawn
+ * into it
+ *
+ * with Mesa on a machine without a GPU, running the game with
+ * EGL_PLATFORM=surfaceless (and LIBGL_ALWAYS_SOFTWARE=1) picks the software
+ * rasterizer
+ *
+ * Aidin Yazdi
+ */
+
+package engine.io;
+
+import java.nio.IntBuffer;
+
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.egl.EGL;
+import org.lwjgl.egl.EGL10;
+import org.lwjgl.egl.EGL12;
+import org.lwjgl.egl.EGL14;
+import org.lwjgl.egl.EGL15;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.system.Configuration;
+import org.lwjgl.system.MemoryStack;
+
+public class HeadlessContext {
+    // the EGL display, surface, and context (0 if they haven't been made)
+    private static long display, surface, context;
+
+    /*
+     * make the context and make it current on this thread
+     *
+     * this also loads OpenGL through EGL (so GL.createCapabilities() can be
+     * called right after this). It returns false if the context couldn't be
+     * made
+     */
+    public static boolean create() {
+	/*
+	 * LWJGL normally loads OpenGL (through GLX) the first time it's used.
+	 * This tells it to wait, so that we can load it through EGL below
+	 */
+	Configuration.OPENGL_EXPLICIT_INIT.set(true);
+
+	try (MemoryStack stack = MemoryStack.stackPush()) {
+	    display = EGL10.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+	    IntBuffer major = stack.mallocInt(1), minor = stack.mallocInt(1);
+	    if (display == 0 || !EGL10.eglInitialize(display, major, minor)) {
+		System.err.println("ERROR: EGL was not initialized (error " + EGL10.eglGetError() + ")");
+		return false;
+	    }
+	    EGL.createDisplayCapabilities(display, major.get(0), minor.get(0));
+	    System.out.println("EGL " + major.get(0) + "." + minor.get(0) + " initialized");
+
+	    // we want desktop OpenGL (not OpenGL ES)
+	    if (!EGL12.eglBindAPI(EGL14.EGL_OPENGL_API)) {
+		System.err.println("ERROR: EGL doesn't support OpenGL");
+		destroy();
+		return false;
+	    }
+
+	    IntBuffer configAttributes = stack.ints(
+		    EGL10.EGL_SURFACE_TYPE, EGL10.EGL_PBUFFER_BIT,
+		    EGL12.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_BIT,
+		    EGL10.EGL_RED_SIZE, 8,
+		    EGL10.EGL_GREEN_SIZE, 8,
+		    EGL10.EGL_BLUE_SIZE, 8,
+		    EGL10.EGL_ALPHA_SIZE, 8,
+		    EGL10.EGL_NONE);
+	    PointerBuffer config = stack.mallocPointer(1);
+	    IntBuffer configs = stack.mallocInt(1);
+	    if (!EGL10.eglChooseConfig(display, configAttributes, config, configs) || configs.get(0) == 0) {
+		System.err.println("ERROR: EGL doesn't have a config that can draw with OpenGL");
+		destroy();
+		return false;
+	    }
+
+	    surface = EGL10.eglCreatePbufferSurface(display, config.get(0),
+		    stack.ints(EGL10.EGL_WIDTH, 1, EGL10.EGL_HEIGHT, 1, EGL10.EGL_NONE));
+
+	    // the same version of OpenGL that the Window asks GLFW for
+	    IntBuffer contextAttributes = stack.ints(
+		    EGL15.EGL_CONTEXT_MAJOR_VERSION, 4,
+		    EGL15.EGL_CONTEXT_MINOR_VERSION, 6,
+		    EGL15.EGL_CONTEXT_OPENGL_PROFILE_MASK, EGL15.EGL_CONTEXT_OPENGL_CORE_PROFILE_BIT,
+		    EGL10.EGL_NONE);
+	    context = EGL10.eglCreateContext(display, config.get(0), EGL10.EGL_NO_CONTEXT, contextAttributes);
+	    if (surface == EGL10.EGL_NO_SURFACE || context == EGL10.EGL_NO_CONTEXT
+		    || !EGL10.eglMakeCurrent(display, surface, surface, context)) {
+		System.err.println("ERROR: the EGL context was not created (error " + EGL10.eglGetError() + ")");
+		destroy();
+		return false;
+	    }
+	}
+
+	// load the OpenGL functions through EGL (instead of GLX, which needs a display)
+	GL.create(EGL.getFunctionProvider());
+	System.out.println("headless OpenGL context created");
+	return true;
+    }
+
+    // destroy the context to free up system resources
+    public static void destroy() {
+	if (display == 0) {
+	    return;
+	}
+
+	EGL10.eglMakeCurrent(display, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
+	if (context != EGL10.EGL_NO_CONTEXT) {
+	    EGL10.eglDestroyContext(display, context);
+	    context = EGL10.EGL_NO_CONTEXT;
+	}
+	if (surface != EGL10.EGL_NO_SURFACE) {
+	    EGL10.eglDestroySurface(display, surface);
+	    surface = EGL10.EGL_NO_SURFACE;
+	}
+	EGL10.eglTerminate(display);
+	display = 0;
+    }
+}
@@ -23,6 +23,15 @@ public class Input {
      * corresponding key is not being pressed down this frame
      */
     private static boolean[] keys = new boolean[GLFW.GLFW_KEY_LAST];
+    /*
+     * this goes up every time a key changes
+     * 
+     * the keys are written on the thread that polls the window, but they can
+     * be read on another thread (the simulation thread - check the
+     * SimulationThread class). Since this is volatile, reading it before
+     * reading a key makes sure that the other thread sees the newest keys
+     */
+    private static volatile int keyChanges;
     /*
      * the same thing that was done with keys is now repeated with the mouse
      * buttons and stored in the variable buttons
@@ -69,6 +78,7 @@ public class Input {
 		 * if that key is not being pressed
 		 */
 		keys[key] = (action != GLFW.GLFW_RELEASE);
+		keyChanges++;
 	    }
 	};
 	/*
@@ -110,6 +120,12 @@ public class Input {
      * given key is being pressed
      */
     public static boolean isKeyDown(int key) {
+	/*
+	 * reading keyChanges first makes sure the newest keys are seen (check
+	 * the comment on keyChanges)
+	 */
+	@SuppressWarnings("unused")
+	int changes = keyChanges;
 	return keys[key];
     }
 
@@ -9,17 +9,62 @@
 
 package engine.io;
 
+import java.io.File;
+
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.glfw.GLFWWindowSizeCallback;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 
+import engine.graphics.Framebuffer;
 import engine.maths.Matrix4f;
 import engine.maths.Vector3f;
+import engine.utils.FrameStats;
+import engine.utils.PassTimer;
 
 // the Window class
 public class Window {
+    /*
+     * whether or not the game runs without showing a window (for benchmarks
+     * and tests on machines that might not even have a display). This can be
+     * changed by running the game with -Dpong.headless=<mode>
+     * 
+     * "false" - a normal window (the default)
+     * 
+     * "true" - a hidden GLFW window, or an EGL context if GLFW can't make one
+     * (because there's no display)
+     * 
+     * "egl" - always an EGL context (check the HeadlessContext class)
+     * 
+     * in headless mode everything is drawn into a framebuffer object instead
+     * of the window, and the game stops by itself after
+     * -Dpong.headless.frames frames (600 by default, 0 means never). Running
+     * with -Dpong.readback=<n> also saves every n-th frame as a PNG in the
+     * folder given by -Dpong.readbackDir ("frames" by default)
+     */
+    private static final String HEADLESS = System.getProperty("pong.headless", "false");
+    private final boolean headless = !HEADLESS.equals("false");
+    private final int maxFrames = Integer.getInteger("pong.headless.frames", 600);
+    private final int readbackEvery = Integer.getInteger("pong.readback", 0);
+    private final String readbackFolder = System.getProperty("pong.readbackDir", "frames");
+
+    /*
+     * the framebuffer everything is drawn into in headless mode (null if
+     * there's a normal window)
+     */
+    private Framebuffer framebuffer;
+
+    /*
+     * how many frames have been finished in total, and when the first one
+     * started (used to print a summary when a headless run is done)
+     */
+    private int totalFrames;
+    private long startTime;
+
+    // whether or not the context was made with EGL (instead of GLFW)
+    private boolean usingEGL;
+
     // these variables keep track of how many FPS we are doing
     private int frames;
     private static long time;
@@ -83,6 +128,23 @@ public class Window {
 	this.width = width;
 	this.height = height;
 	this.title = title;
+	updateProjection();
+    }
+
+    /*
+     * this makes the projection matrix for the current size of the window
+     * 
+     * it's called whenever the window is resized (so that the aspect ratio
+     * stays right). It makes a new matrix instead of changing the old one, so
+     * anything holding on to the old one (like the CameraBuffer) can tell that
+     * it changed
+     */
+    private void updateProjection() {
+	// a minimized window has a height of 0, so just keep the old projection
+	if (width <= 0 || height <= 0) {
+	    return;
+	}
+
 	/*
 	 * the first argument to the projection matrix is the field of view (in
 	 * degrees)
@@ -101,6 +163,12 @@ public class Window {
 	// this creates our input object as an instance of the Input class
 	input = new Input();
 
+	// there's no window to show in headless mode
+	if (headless) {
+	    createHeadless();
+	    return;
+	}
+
 	/*
 	 * initializes GLFW
 	 * 
@@ -172,8 +240,8 @@ public class Window {
 	 */
 	GL.createCapabilities();
 
-	// this just allows vertices to be shown correctly in 3D
-	GL11.glEnable(GL11.GL_DEPTH_TEST);
+	// set up the OpenGL settings the game needs
+	setUpOpenGL();
 
 	/*
 	 * this will create all the callbacks for the window. The actual
@@ -185,19 +253,80 @@ public class Window {
 	GLFW.glfwShowWindow(window);
 
 	/*
-	 * this limits the buffer swapping to however many times the monitor can
-	 * handle (it's basically V-Sync). For most monitors, this will be 60
-	 * times per second
-	 * 
-	 * essentially, this limits the game to however many FPS the monitor can
-	 * actually display (approximately, it's not perfect)
+	 * this sets how fast the frames are drawn. By default it limits the
+	 * buffer swapping to however many times the monitor can handle (it's
+	 * basically V-Sync), but it can also be uncapped or limited to a certain
+	 * FPS (check the FramePacer class)
 	 */
-	GLFW.glfwSwapInterval(1);
+	FramePacer.create(window, false);
 
 	// get the current system time (this is used for the FPS counter)
 	time = System.currentTimeMillis();
     }
 
+    // the OpenGL settings the game needs (for a window or headless)
+    private void setUpOpenGL() {
+	// this just allows vertices to be shown correctly in 3D
+	GL11.glEnable(GL11.GL_DEPTH_TEST);
+
+	/*
+	 * this lets pixels be partly see-through (so that the smooth edges of
+	 * round shapes blend into whatever is behind them)
+	 */
+	GL11.glEnable(GL11.GL_BLEND);
+	GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    /*
+     * make an OpenGL context without showing a window, and a framebuffer to
+     * draw into
+     * 
+     * this tries a hidden GLFW window first (unless the mode is "egl"), and
+     * uses EGL if GLFW can't make one
+     */
+    private void createHeadless() {
+	if (!HEADLESS.equals("egl") && GLFW.glfwInit()) {
+	    GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
+	    GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 4);
+	    GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 6);
+	    GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
+	    GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GL11.GL_TRUE);
+	    window = GLFW.glfwCreateWindow(width, height, title, 0, 0);
+	    if (window == 0) {
+		GLFW.glfwTerminate();
+	    }
+	}
+
+	if (window != 0) {
+	    GLFW.glfwMakeContextCurrent(window);
+	    System.out.println("hidden window created");
+	} else if (HeadlessContext.create()) {
+	    usingEGL = true;
+	} else {
+	    System.err.println("ERROR: the headless OpenGL context was not created");
+	    return;
+	}
+	GL.createCapabilities();
+	setUpOpenGL();
+
+	// there's no monitor to wait for (but the FPS can still be limited)
+	FramePacer.create(window, true);
+
+	// everything is drawn into the framebuffer from now on
+	framebuffer = new Framebuffer(width, height);
+	if (!framebuffer.create()) {
+	    return;
+	}
+	framebuffer.bind();
+
+	if (readbackEvery > 0) {
+	    new File(readbackFolder).mkdirs();
+	}
+
+	time = System.currentTimeMillis();
+	startTime = System.nanoTime();
+    }
+
     /*
      * all the callbacks for the window will go in here. This function will
      * basically create all the callbacks for the window object when it is
@@ -240,8 +369,9 @@ public class Window {
      */
     public void update() {
 	// this resizes the window to the correct size if it has been changed
-	if (isResized) {
+	if (isResized && !headless) {
 	    GL11.glViewport(0, 0, width, height);
+	    updateProjection();
 	    isResized = false;
 	}
 
@@ -254,6 +384,7 @@ public class Window {
 	 * it's a float. Otherwise, it will just evaluate as a double which will
 	 * cause OpenGL to throw an error
 	 */
+	PassTimer.begin(PassTimer.CLEAR);
 	GL11.glClearColor(background.getX(), background.getY(), background.getZ(), 1.0f);
 	/*
 	 * this tells OpenGL to actually clear (use the clear color)
@@ -261,8 +392,12 @@ public class Window {
 	 * the second argument tells OpenGL to clear in 3D (and not just 2D)
 	 */
 	GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+	PassTimer.end(PassTimer.CLEAR);
 
-	GLFW.glfwPollEvents();
+	// (there are no events without a GLFW window)
+	if (window != 0) {
+	    GLFW.glfwPollEvents();
+	}
 
 	// iterate the frames (used to display the FPS)
 	frames++;
@@ -272,7 +407,8 @@ public class Window {
 	if ((tempTime = System.currentTimeMillis()) > (time + 1000)) {
 	    time = tempTime;
 	    // the old way of telling the user the FPS
-	    System.out.println("FPS: " + frames);
+	    System.out.println("FPS: " + frames + " | " + FrameStats.report()
+		    + " | " + FramePacer.report() + (PassTimer.isEnabled() ? " | " + PassTimer.report() : ""));
 	    /*
 	     * the new way of telling the user the FPS: BROKEN - DO NOT USE -
 	     * MESSES WITH UBUNTU FOR SOME REASON
@@ -288,7 +424,23 @@ public class Window {
      * I don't really fully understand this one
      */
     public void swapBuffers() {
-	GLFW.glfwSwapBuffers(window);
+	totalFrames++;
+
+	/*
+	 * in headless mode nothing is shown, so the frame is just sent off to
+	 * the GPU (and saved, if it's one of the frames that should be)
+	 */
+	if (headless) {
+	    if (readbackEvery > 0 && framebuffer != null && totalFrames % readbackEvery == 0) {
+		framebuffer.save(readbackFolder + File.separator + String.format("frame%06d.png", totalFrames));
+	    }
+	    GL11.glFlush();
+	} else {
+	    GLFW.glfwSwapBuffers(window);
+	}
+
+	// wait for the next frame (if the FPS is limited) and time this one
+	FramePacer.endFrame();
     }
 
     /*
@@ -296,6 +448,11 @@ public class Window {
      * button on the window to exit)
      */
     public boolean shouldClose() {
+	// a headless run stops after the right number of frames
+	if (headless) {
+	    return framebuffer == null || (maxFrames > 0 && totalFrames >= maxFrames)
+		    || (window != 0 && GLFW.glfwWindowShouldClose(window));
+	}
 	return GLFW.glfwWindowShouldClose(window);
     }
 
@@ -308,7 +465,30 @@ public class Window {
 	input.destroy();
 
 	// frees the sizeCallback
-	sizeCallback.free();
+	if (sizeCallback != null) {
+	    sizeCallback.free();
+	}
+
+	if (headless) {
+	    // tell the user how fast the frames were drawn
+	    if (totalFrames > 0) {
+		double seconds = (System.nanoTime() - startTime) / 1000000000.0;
+		System.out.println(String.format("headless: %d frames in %.3f s (%.3f ms/frame)", totalFrames, seconds,
+			(seconds * 1000.0) / totalFrames));
+	    }
+
+	    if (framebuffer != null) {
+		framebuffer.destroy();
+		framebuffer = null;
+	    }
+	    if (usingEGL) {
+		HeadlessContext.destroy();
+		return;
+	    }
+	    if (window == 0) {
+		return;
+	    }
+	}
 
 	/*
 	 * this will close, destroy, and terminate GLFW (which frees up the
@@ -332,6 +512,11 @@ public class Window {
     }
 
     public void setFullscreen(boolean isFullscreen) {
+	// there's no window to make fullscreen in headless mode
+	if (headless) {
+	    return;
+	}
+
 	this.isFullscreen = isFullscreen;
 	/*
 	 * if the screen is either being put in fullscreen or taken out of
@@ -354,6 +539,9 @@ public class Window {
      * unlocked, it will be able to move around
      */
     public void setMouseState(boolean lock) {
+	if (window == 0) {
+	    return;
+	}
 	GLFW.glfwSetInputMode(window, GLFW.GLFW_CURSOR, lock ? GLFW.GLFW_CURSOR_DISABLED : GLFW.GLFW_CURSOR_NORMAL);
     }
 
@@ -373,6 +561,14 @@ public class Window {
 	return window;
     }
 
+    public boolean isHeadless() {
+	return headless;
+    }
+
+    public Framebuffer getFramebuffer() {
+	return framebuffer;
+    }
+
     public Matrix4f getProjectionMatrix() {
 	return projection;
     }
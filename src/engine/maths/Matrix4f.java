@@ -8,6 +8,7 @@
 
 package engine.maths;
 
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 
 public class Matrix4f {
@@ -230,6 +231,19 @@ public class Matrix4f {
 	return result;
     }
 
+    /*
+     * multiply a point by this matrix (the same math the vertex shader does
+     * with the model matrix) and store the result in dest
+     * 
+     * dest can be the same vector as point
+     */
+    public void transformPoint(Vector3f point, Vector3f dest) {
+	float x = point.getX(), y = point.getY(), z = point.getZ();
+	dest.set(get(0, 0) * x + get(1, 0) * y + get(2, 0) * z + get(3, 0),
+		get(0, 1) * x + get(1, 1) * y + get(2, 1) * z + get(3, 1),
+		get(0, 2) * x + get(1, 2) * y + get(2, 2) * z + get(3, 2));
+    }
+
     // this method will help us compare values (even across classes)
     @Override
     public int hashCode() {
@@ -281,4 +295,26 @@ public class Matrix4f {
     public float[] getAll() {
 	return elements;
     }
+
+    /*
+     * this method writes everything in the matrix straight into the given
+     * buffer (in the same order as getAll())
+     * 
+     * it uses absolute puts starting at the beginning of the buffer, so the
+     * buffer's position doesn't change and it doesn't need to be flipped
+     * afterwards
+     */
+    public void store(FloatBuffer buffer) {
+	store(buffer, 0);
+    }
+
+    /*
+     * this does the same thing as store(), but starts writing "offset" floats
+     * into the buffer (so that more than one matrix can go in the same buffer)
+     */
+    public void store(FloatBuffer buffer, int offset) {
+	for (int i = 0; i < elements.length; i++) {
+	    buffer.put(offset + i, elements[i]);
+	}
+    }
 }
@@ -3,6 +3,10 @@
  * 
  * this class creates a circle
  * 
+ * a circle is just one square that is drawn round (check Mesh.SHAPE_ROUND). The
+ * fragment shader works out the edge of the circle for every pixel, so it's
+ * perfectly smooth and only takes 4 vertices
+ * 
  * NOTE: this class doesn't actually hold most of the data that is used to make
  * the circle. Instead, this class is used to take inputs and spit out a circle
  * mesh. That means that if you later wanted data about the circle, like it's
@@ -14,6 +18,7 @@
 package engine.objects;
 
 import engine.graphics.Mesh;
+import engine.graphics.Vertex;
 import engine.maths.Vector3f;
 
 public class Circle {
@@ -23,52 +28,31 @@ public class Circle {
     }
 
     // return a circle mesh
-    public static Mesh[] generateCircle(Vector3f center, float radius, int indices, Vector3f color) {
-	// create an array to store all the top left corners of the squares in
-	Vector3f[] vectors = new Vector3f[indices];
-	/*
-	 * create an array to store all the z-axis angles the squares should be
-	 * tilted at in
-	 */
-	float[] zAngles = new float[indices];
-	/*
-	 * store the coordinates of the center of the circle to use them for the
-	 * math later
-	 * 
-	 * also store the length of the circle
-	 */
-	float x = center.getX();
-	float y = center.getY();
-	float z = center.getX();
-	float l = (float) Math.sqrt(2) * radius;
-
-	/*
-	 * iterate a bunch of times to create all the top left vectors for the
-	 * squares and store the z angle that each square should be at
-	 */
-	for (int i = 0; i < indices; i++) {
-	    float xPrime, yPrime;
-	    float theta = (float) ((90.0f / (float) indices) * (float) i);
-	    float thetaPrime = (180.0f - 45.0f) - theta;
-
-	    xPrime = (float) (radius * Math.cos(Math.toRadians(thetaPrime))) + x;
-//	    yPrime = (float) ((xPrime - x)
-//		    * Math.tan(Math.toRadians(((180.0f - theta) / 2.0f) - ((180 - (theta * 2.0f)) / 2.0f)))) + y;
-	    yPrime = (float) (radius * Math.sin(Math.toRadians(thetaPrime))) + y;
-
-	    vectors[i] = new Vector3f(xPrime, yPrime, z);
-//	    zAngles[i] = (float) (1.0f * ((90.0f / (float) indices) * (float) i));
-	    zAngles[i] = -1.0f * theta;
-	}
-
-	// make all the square meshes
-	Mesh[] squareMeshes = new Mesh[indices];
-	for (int i = 0; i < vectors.length; i++) {
-	    squareMeshes[i] = Square.generateSquare(vectors[i], new Vector3f(0.0f, 0.0f, zAngles[i]), l, color, color,
-		    color, color, null);
-	}
+    public static Mesh generateCircle(Vector3f center, float radius, Vector3f color) {
+	Mesh circle = new Mesh(generateCircleVertices(center, radius, color), new int[]
+	    {
+		0,
+		1,
+		2,
+		0,
+		3,
+		2
+	    }, null);
+	circle.setRounded(true);
+	return circle;
+    }
 
-	// return the square meshes (which make up the circle mesh)
-	return squareMeshes;
+    /*
+     * return just the vertices of the square that a circle is drawn in
+     * (without making a mesh)
+     *
+     * this is used both to create a new circle and to move a circle that
+     * already exists
+     */
+    public static Vertex[] generateCircleVertices(Vector3f center, float radius, Vector3f color) {
+	// the square's top left corner is one radius up and to the left of the center
+	Vector3f topLeft = new Vector3f(center.getX() - radius, center.getY() + radius, center.getZ());
+	return Square.generateSquareVertices(topLeft, new Vector3f(0.0f, 0.0f, 0.0f), radius * 2.0f, color, color,
+		color, color);
     }
 }
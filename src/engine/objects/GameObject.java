@@ -11,12 +11,43 @@
 package engine.objects;
 
 import engine.graphics.Mesh;
+import engine.maths.Matrix4f;
 import engine.maths.Vector3f;
 
 public class GameObject {
     private Vector3f position, rotation, scale;
     private Mesh mesh;
 
+    /*
+     * the object's model matrix (its position, rotation, and scale all put
+     * together - check Matrix4f.transform())
+     * 
+     * making the matrix takes a lot of math (and a bunch of new matrices), so
+     * it's only made again when the position, rotation, or scale has changed
+     */
+    private Matrix4f model;
+
+    /*
+     * the position, rotation, and scale that the model matrix was made from
+     * 
+     * the getters give out the actual vectors (which can be changed from
+     * outside this class), so this is how we notice that they were changed
+     */
+    private float[] madeFrom = new float[9];
+
+    /*
+     * how many times the model matrix has been made. If the version is the
+     * same as last time, the matrix hasn't changed (so the renderer doesn't
+     * have to upload it again)
+     */
+    private int version;
+
+    // whether or not the model matrix is just the identity matrix
+    private boolean identity;
+
+    // whether or not one of the setters has been called since the matrix was made
+    private boolean dirty = true;
+
     // the constructor
     public GameObject(Vector3f position, Vector3f rotation, Vector3f scale, Mesh mesh) {
 	this.position = position;
@@ -30,6 +61,80 @@ public class GameObject {
 	position.setZ((float) (position.getZ() - 0.05f));
     }
 
+    /*
+     * make the model matrix again, but only if the position, rotation, or scale
+     * has changed since the last time it was made
+     */
+    private void refresh() {
+	if (!dirty && madeFrom[0] == position.getX() && madeFrom[1] == position.getY()
+		&& madeFrom[2] == position.getZ() && madeFrom[3] == rotation.getX()
+		&& madeFrom[4] == rotation.getY() && madeFrom[5] == rotation.getZ() && madeFrom[6] == scale.getX()
+		&& madeFrom[7] == scale.getY() && madeFrom[8] == scale.getZ()) {
+	    return;
+	}
+
+	madeFrom[0] = position.getX();
+	madeFrom[1] = position.getY();
+	madeFrom[2] = position.getZ();
+	madeFrom[3] = rotation.getX();
+	madeFrom[4] = rotation.getY();
+	madeFrom[5] = rotation.getZ();
+	madeFrom[6] = scale.getX();
+	madeFrom[7] = scale.getY();
+	madeFrom[8] = scale.getZ();
+
+	identity = madeFrom[0] == 0 && madeFrom[1] == 0 && madeFrom[2] == 0 && madeFrom[3] == 0 && madeFrom[4] == 0
+		&& madeFrom[5] == 0 && madeFrom[6] == 1 && madeFrom[7] == 1 && madeFrom[8] == 1;
+	model = identity ? Matrix4f.identity() : Matrix4f.transform(position, rotation, scale);
+	version++;
+	dirty = false;
+    }
+
+    /*
+     * the object's model matrix (this is only made again if the object has
+     * moved, rotated, or been scaled since the last time)
+     * 
+     * the matrix that is returned must not be changed
+     */
+    public Matrix4f getModelMatrix() {
+	refresh();
+	return model;
+    }
+
+    /*
+     * the version of the model matrix (this goes up by one every time the
+     * matrix changes)
+     */
+    public int getVersion() {
+	refresh();
+	return version;
+    }
+
+    /*
+     * whether or not the object isn't moved, rotated, or scaled at all (in
+     * which case its transformation matrix would just be the identity matrix)
+     */
+    public boolean isIdentity() {
+	refresh();
+	return identity;
+    }
+
+    // the following methods are setters
+    public void setPosition(Vector3f position) {
+	this.position = position;
+	dirty = true;
+    }
+
+    public void setRotation(Vector3f rotation) {
+	this.rotation = rotation;
+	dirty = true;
+    }
+
+    public void setScale(Vector3f scale) {
+	this.scale = scale;
+	dirty = true;
+    }
+
     // the following methods are getters
     public Vector3f getPosition() {
         return position;
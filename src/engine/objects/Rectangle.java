@@ -33,14 +33,6 @@ public class Rectangle {
      */
     public static Mesh generateRectangle(Vector3f topLeft, float length, float width, Vector3f color1, Vector3f color2,
 	    Vector3f color3, Vector3f color4, String texture) {
-	/*
-	 * set up the coordinates for the other corners (that aren't the top
-	 * left corner - since that corner is passed in as a parameter)
-	 */
-	Vector3f bottomLeft = Vector3f.add(topLeft, new Vector3f(0.0f, -length, 0.0f));
-	Vector3f bottomRight = Vector3f.add(bottomLeft, new Vector3f(width, 0.0f, 0.0f));
-	Vector3f topRight = Vector3f.add(bottomRight, new Vector3f(0.0f, length, 0.0f));
-
 	/*
 	 * set up the material (either null if the path given is null, or an
 	 * actual material)
@@ -66,13 +58,7 @@ public class Rectangle {
 	 * set up the mesh of the rectangle given all the information and return
 	 * it
 	 */
-	return new Mesh(new Vertex[]
-	    {
-		new Vertex(topLeft, color1, new Vector2f(0.0f, 0.0f)),
-		new Vertex(bottomLeft, color2, new Vector2f(0.0f, 1.0f)),
-		new Vertex(bottomRight, color3, new Vector2f(1.0f, 1.0f)),
-		new Vertex(topRight, color4, new Vector2f(01.0f, 0.0f))
-	    }, new int[]
+	return new Mesh(generateRectangleVertices(topLeft, length, width, color1, color2, color3, color4), new int[]
 	    {
 		0,
 		1,
@@ -83,11 +69,42 @@ public class Rectangle {
 	    }, material);
     }
 
-    // a function to handle moving a rectangle mesh
-    public static Mesh moveRectangle(Mesh rectangle, Vector3f movement, String texture) {
-	return Rectangle.generateRectangle(Vector3f.add(rectangle.getVertices()[0].getPosition(), movement),
-		getStandardRectangleLength(), getStandardRectangleWidth(), rectangle.getVertices()[0].getColor(),
+    /*
+     * return just the vertices of a rectangle (without making a whole mesh)
+     *
+     * this is used both to create a new rectangle mesh and to move a
+     * rectangle mesh that already exists
+     */
+    public static Vertex[] generateRectangleVertices(Vector3f topLeft, float length, float width, Vector3f color1,
+	    Vector3f color2, Vector3f color3, Vector3f color4) {
+	/*
+	 * set up the coordinates for the other corners (that aren't the top
+	 * left corner - since that corner is passed in as a parameter)
+	 */
+	Vector3f bottomLeft = Vector3f.add(topLeft, new Vector3f(0.0f, -length, 0.0f));
+	Vector3f bottomRight = Vector3f.add(bottomLeft, new Vector3f(width, 0.0f, 0.0f));
+	Vector3f topRight = Vector3f.add(bottomRight, new Vector3f(0.0f, length, 0.0f));
+
+	return new Vertex[]
+	    {
+		new Vertex(topLeft, color1, new Vector2f(0.0f, 0.0f)),
+		new Vertex(bottomLeft, color2, new Vector2f(0.0f, 1.0f)),
+		new Vertex(bottomRight, color3, new Vector2f(1.0f, 1.0f)),
+		new Vertex(topRight, color4, new Vector2f(01.0f, 0.0f))
+	    };
+    }
+
+    /*
+     * a function to handle moving a rectangle mesh
+     *
+     * the mesh itself is kept - only its vertices are replaced, so nothing on
+     * the GPU has to be created again
+     */
+    public static void moveRectangle(Mesh rectangle, Vector3f movement) {
+	rectangle.setVertices(Rectangle.generateRectangleVertices(
+		Vector3f.add(rectangle.getVertices()[0].getPosition(), movement), getStandardRectangleLength(),
+		getStandardRectangleWidth(), rectangle.getVertices()[0].getColor(),
 		rectangle.getVertices()[1].getColor(), rectangle.getVertices()[2].getColor(),
-		rectangle.getVertices()[3].getColor(), texture);
+		rectangle.getVertices()[3].getColor()));
     }
 }
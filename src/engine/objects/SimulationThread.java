@@ -0,0 +1,146 @@
+/*
+ * the SimulationThread class
+ *
+ * this class runs the game (ticks it) on its own thread, separate from the
+ * thread that draws it
+ *
+ * when the game is ticked on the same thread that draws it, a slow frame (like
+ * waiting for the GPU or for the buffers to swap) holds up the next tick, and a
+ * slow tick holds up the next frame. On its own thread, the game just keeps
+ * ticking at its tick rate no matter what the drawing is doing
+ *
+ * the two threads never share the game itself. The simulation thread has its
+ * own copy of everything (its own ToRender), and after it ticks it writes a
+ * snapshot of where everything is. The render thread picks up the newest
+ * snapshot every frame and moves its own objects to match it. The snapshots
+ * are passed between the threads without any locks (check the
+ * SnapshotExchange class)
+ *
+ * this is turned on by running the game with -Dpong.threads=true
+ *
+ * Aidin Yazdi
+ */
+
+package engine.objects;
+
+import java.util.concurrent.locks.LockSupport;
+
+import engine.utils.FixedTimestep;
+import engine.utils.SnapshotExchange;
+import pong.PongSimulation;
+
+public class SimulationThread implements Runnable {
+    // the simulation thread's own copy of the game
+    private ToRender simulation = new ToRender();
+
+    // the clock that decides when to tick
+    private FixedTimestep timestep;
+
+    // how many of the game's ticks each tick lasts (check ToRender.update())
+    private float span;
+
+    // passes the snapshots to the render thread
+    private SnapshotExchange<Snapshot> exchange;
+
+    // the thread itself, and whether or not it should keep running
+    private Thread thread;
+    private volatile boolean running;
+
+    // the constructor
+    public SimulationThread(double ticksPerSecond) {
+	timestep = new FixedTimestep(ticksPerSecond, 8);
+	span = (float) (PongSimulation.TICK_RATE / ticksPerSecond);
+	int objects = simulation.getObjects().length;
+	exchange = new SnapshotExchange<Snapshot>(() -> new Snapshot(objects));
+    }
+
+    // start ticking the game
+    public void start() {
+	running = true;
+	thread = new Thread(this, "simulation");
+	thread.setDaemon(true);
+	thread.start();
+    }
+
+    // the simulation loop (this runs on the simulation thread)
+    public void run() {
+	while (running) {
+	    int ticks = timestep.advance();
+	    for (int i = 0; i < ticks; i++) {
+		simulation.update(span);
+	    }
+
+	    // only write a snapshot if something actually happened
+	    if (ticks > 0) {
+		Snapshot snapshot = exchange.getBack();
+		simulation.captureSnapshot(snapshot);
+		snapshot.tick = timestep.getTicks();
+		// when the last tick should have happened (not when it actually did)
+		snapshot.time = System.nanoTime() - (long) (timestep.getAlpha() * timestep.getTickLength());
+		exchange.publish();
+	    }
+
+	    // sleep until the next tick is due
+	    LockSupport.parkNanos((long) ((1.0f - timestep.getAlpha()) * timestep.getTickLength()));
+	}
+    }
+
+    /*
+     * get the newest snapshot (only the render thread can call this)
+     *
+     * the snapshot belongs to the render thread until the next time this is
+     * called
+     */
+    public Snapshot acquire() {
+	return exchange.acquire();
+    }
+
+    /*
+     * how far (from 0 to 1) the render thread is between the tick of a
+     * snapshot and the tick after it (used to draw the snapshot smoothly)
+     */
+    public float getAlpha(Snapshot snapshot) {
+	if (snapshot.time == 0) {
+	    return 1.0f;
+	}
+	float alpha = (float) (System.nanoTime() - snapshot.time) / (float) timestep.getTickLength();
+	return Math.max(0.0f, Math.min(1.0f, alpha));
+    }
+
+    // stop ticking the game (and wait for the thread to finish)
+    public void stop() {
+	running = false;
+	if (thread != null) {
+	    LockSupport.unpark(thread);
+	    try {
+		thread.join();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	    thread = null;
+	}
+    }
+
+    /*
+     * a short summary of how the snapshots were passed between the threads
+     * (dropped snapshots were never drawn, and duplicated ones were drawn more
+     * than once)
+     */
+    public String report() {
+	return "ticks: " + timestep.getTicks() + " | snapshots dropped: " + exchange.getDropped() + " | duplicated: "
+		+ exchange.getDuplicated();
+    }
+
+    // the following methods are getters
+    public int getDropped() {
+	return exchange.getDropped();
+    }
+
+    public int getDuplicated() {
+	return exchange.getDuplicated();
+    }
+
+    public long getTicks() {
+	return timestep.getTicks();
+    }
+}
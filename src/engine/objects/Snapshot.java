@@ -0,0 +1,47 @@
+/*
+ * the Snapshot class
+ *
+ * this class holds everything the renderer needs to know about one tick of the
+ * game: where every object is, and how far it moved during the tick (so that it
+ * can be drawn smoothly between ticks)
+ *
+ * the positions are offsets from where each object started (when the game was
+ * made), so the renderer can just put them in the objects' positions (check
+ * ToRender.applySnapshot())
+ *
+ * snapshots are made by the simulation thread and read by the render thread
+ * (check the SimulationThread class). They're reused over and over, so nothing
+ * is allocated after they're made
+ *
+ * Aidin Yazdi
+ */
+
+package engine.objects;
+
+public class Snapshot {
+    // how far each object is from where it started
+    float[] offsetX, offsetY;
+
+    // how far each object moved during the tick
+    float[] movementX, movementY;
+
+    // which tick this is, and when it happened (System.nanoTime())
+    long tick, time;
+
+    // the constructor ("objects" is how many objects there are)
+    public Snapshot(int objects) {
+	offsetX = new float[objects];
+	offsetY = new float[objects];
+	movementX = new float[objects];
+	movementY = new float[objects];
+    }
+
+    // the following methods are getters
+    public long getTick() {
+	return tick;
+    }
+
+    public long getTime() {
+	return time;
+    }
+}
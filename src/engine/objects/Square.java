@@ -38,19 +38,6 @@ public class Square {
      */
     public static Mesh generateSquare(Vector3f topLeft, Vector3f angles, float length, Vector3f color1, Vector3f color2,
 	    Vector3f color3, Vector3f color4, String texture) {
-	/*
-	 * set up the coordinates for the other corners (that aren't the top
-	 * left corner - since that corner is passed in as a parameter)
-	 */
-	Vector3f bottomLeft = Vector3f.add(topLeft, new Vector3f(0.0f, -length, 0.0f));
-	Vector3f bottomRight = Vector3f.add(bottomLeft, new Vector3f(length, 0.0f, 0.0f));
-	Vector3f topRight = Vector3f.add(bottomRight, new Vector3f(0.0f, length, 0.0f));
-
-	// rotate the corners
-	bottomLeft = rotations(topLeft, bottomLeft, angles);
-	bottomRight = rotations(topLeft, bottomRight, angles);
-	topRight = rotations(topLeft, topRight, angles);
-
 	/*
 	 * set up the material (either null if the path given is null, or an
 	 * actual material)
@@ -73,13 +60,7 @@ public class Square {
 	}
 
 	// set up the mesh of the square given all the information and return it
-	return new Mesh(new Vertex[]
-	    {
-		new Vertex(topLeft, color1, new Vector2f(0.0f, 0.0f)),
-		new Vertex(bottomLeft, color2, new Vector2f(0.0f, 1.0f)),
-		new Vertex(bottomRight, color3, new Vector2f(1.0f, 1.0f)),
-		new Vertex(topRight, color4, new Vector2f(01.0f, 0.0f))
-	    }, new int[]
+	return new Mesh(generateSquareVertices(topLeft, angles, length, color1, color2, color3, color4), new int[]
 	    {
 		0,
 		1,
@@ -90,6 +71,38 @@ public class Square {
 	    }, material);
     }
 
+    /*
+     * return just the vertices of a square (without making a whole mesh)
+     *
+     * this is used both to create a new square mesh and to move a square mesh
+     * that already exists
+     */
+    public static Vertex[] generateSquareVertices(Vector3f topLeft, Vector3f angles, float length, Vector3f color1,
+	    Vector3f color2, Vector3f color3, Vector3f color4) {
+	/*
+	 * set up the coordinates for the other corners (that aren't the top
+	 * left corner - since that corner is passed in as a parameter)
+	 */
+	Vector3f bottomLeft = Vector3f.add(topLeft, new Vector3f(0.0f, -length, 0.0f));
+	Vector3f bottomRight = Vector3f.add(bottomLeft, new Vector3f(length, 0.0f, 0.0f));
+	Vector3f topRight = Vector3f.add(bottomRight, new Vector3f(0.0f, length, 0.0f));
+
+	// rotate the corners (unless the square isn't rotated at all)
+	if (angles.getX() != 0.0f || angles.getY() != 0.0f || angles.getZ() != 0.0f) {
+	    bottomLeft = rotations(topLeft, bottomLeft, angles);
+	    bottomRight = rotations(topLeft, bottomRight, angles);
+	    topRight = rotations(topLeft, topRight, angles);
+	}
+
+	return new Vertex[]
+	    {
+		new Vertex(topLeft, color1, new Vector2f(0.0f, 0.0f)),
+		new Vertex(bottomLeft, color2, new Vector2f(0.0f, 1.0f)),
+		new Vertex(bottomRight, color3, new Vector2f(1.0f, 1.0f)),
+		new Vertex(topRight, color4, new Vector2f(01.0f, 0.0f))
+	    };
+    }
+
     // a function to handle to rotations
     public static Vector3f rotations(Vector3f topLeft, Vector3f vector, Vector3f angles) {
 	// get the angles in radian form to make the math easier
@@ -189,11 +202,20 @@ public class Square {
 		matrix[0][2] + topLeft.getZ());
     }
 
-    // a function to handle moving a square mesh
-    public static Mesh moveSquare(Mesh square, Vector3f movement, String texture) {
-	return Square.generateSquare(Vector3f.add(square.getVertices()[0].getPosition(), movement),
-		new Vector3f(0.0f, 0.0f, 0.0f), getStandardSquareLength(), square.getVertices()[0].getColor(),
+    /*
+     * a function to handle moving a square mesh
+     *
+     * the mesh itself (and its material) is kept - only its vertices are
+     * replaced, so nothing on the GPU has to be created again
+     *
+     * the square keeps its size (the distance from its top left corner to its
+     * top right corner)
+     */
+    public static void moveSquare(Mesh square, Vector3f movement) {
+	float length = square.getVertices()[3].getPosition().getX() - square.getVertices()[0].getPosition().getX();
+	square.setVertices(Square.generateSquareVertices(Vector3f.add(square.getVertices()[0].getPosition(), movement),
+		new Vector3f(0.0f, 0.0f, 0.0f), length, square.getVertices()[0].getColor(),
 		square.getVertices()[1].getColor(), square.getVertices()[2].getColor(),
-		square.getVertices()[3].getColor(), texture);
+		square.getVertices()[3].getColor()));
     }
 }
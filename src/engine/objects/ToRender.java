@@ -9,16 +9,39 @@
 
 package engine.objects;
 
-import java.util.Random;
-
 import org.lwjgl.glfw.GLFW;
 
 import engine.graphics.Mesh;
 import engine.io.Input;
 import engine.maths.Vector3f;
 import pong.Pong;
+import pong.PongInput;
+import pong.PongSimulation;
 
 public class ToRender {
+    /*
+     * where each thing is in the meshes[] array: the two walls, the ball, the
+     * blue paddle, the red paddle, and then the six hearts (the three blue
+     * side hearts and then the three red side hearts)
+     */
+    public static final int TOP_WALL = 0, BOTTOM_WALL = 1, BALL = 2, BLUE_PADDLE = 3, RED_PADDLE = 4,
+	    FIRST_HEART = 5;
+
+    /*
+     * every texture the game uses. These are all packed into the texture atlas
+     * when the game starts (check the TextureAtlas class), so that everything
+     * can be drawn with the same texture bound
+     */
+    public static final String[] TEXTURES =
+	{
+	    "/textures/Heart.png",
+	    "/textures/PointBlue.png",
+	    "/textures/PointRed.png",
+	    "/textures/PressSpace.png",
+	    "/textures/DrawnFace.png",
+	    "/textures/Walk.png"
+	};
+
     // initialize the meshes[] array and the objects[] array
     Mesh[] meshes;
     private GameObject[] objects;
@@ -47,19 +70,44 @@ public class ToRender {
     private float heartStartingWidth = 0.00000165f;
     private float textStartingWidth = 0.0000035f;
 
-    // variables to keep track of speeds and previous movements
-    private Vector3f paddleSpeed = new Vector3f(0.0f, 0.00000025f, 0.0f);
-    private Vector3f[] lastFramePaddleMovements =
-	{
-	    new Vector3f(0.0f, 0.0f, 0.0f),
-	    new Vector3f(0.0f, 0.0f, 0.0f)
-	};
-    private Vector3f lastFrameBallMovement = new Vector3f(0.0f, 0.0f, 0.0f);
-    private float ballSpeedModifier = 0.12f;
-    private float ballSpeedIncrease = 0.000000005f;
+    /*
+     * the game itself (where everything is and how many lives everyone has),
+     * the rules that move it forward every tick, and what the players are
+     * pressing. The source code can be found in the pong package
+     * 
+     * the game can be given a seed with -Dpong.seed=<seed>, so that the same
+     * inputs always play out the same way (otherwise every game is different)
+     */
+    private Pong game = (System.getProperty("pong.seed") == null) ? new Pong()
+	    : new Pong(Long.parseLong(System.getProperty("pong.seed")));
+    private PongSimulation simulation = new PongSimulation();
+    private PongInput input = new PongInput();
 
-    // an object to keep track of general data about the game status
-    private Pong gameStatus = new Pong();
+    /*
+     * how far each object is from where its mesh was made (where the game says
+     * it should be). The meshes themselves never move - everything is moved
+     * through the objects' positions (which go into their model matrices)
+     */
+    private float[] offsetX, offsetY;
+
+    /*
+     * how far each object moved during the last tick (check interpolate()).
+     * Only the ball and the paddles move smoothly - everything else (like the
+     * ball being put back in the middle) just jumps, so it stays 0 for them
+     */
+    private float[] tickMovementX, tickMovementY;
+
+    /*
+     * the objects that were moved by the last call to interpolate() or
+     * applySnapshot() (by their place in "objects"). Most objects don't move
+     * most frames, so this lets a renderer only look at the ones that did
+     * (check IndirectRenderer.markChanged())
+     */
+    private int[] moved;
+    private int movedCount;
+
+    // if the winner has been printed yet
+    private boolean announced;
 
     // the constructor
     public ToRender() {
@@ -114,17 +162,15 @@ public class ToRender {
 	    };
 
 	/*
-	 * make a circle:
+	 * make a circle (the ball):
 	 * 
-	 * the number of squares that will be used to make a circle
-	 */
-	int circleIndices = 30;
-	/*
-	 * another temp mesh array to store all the squares that will be used to
-	 * make up the circle
+	 * another temp mesh array to store the circle (it's just one square
+	 * that is drawn round - check the Circle class)
 	 */
-	Mesh[] tempMeshArray2 = Circle.generateCircle(circleCenters[0], Circle.getStandardCircleRadius(), circleIndices,
-		circleColors[0]);
+	Mesh[] tempMeshArray2 =
+	    {
+		Circle.generateCircle(circleCenters[0], Circle.getStandardCircleRadius(), circleColors[0])
+	    };
 
 	// make more shapes
 	Mesh[] tempMeshArray3 =
@@ -198,365 +244,149 @@ public class ToRender {
 	for (int i = 0; i < objects.length; i++) {
 	    objects[i] = new GameObject(new Vector3f(0, 0, 0), new Vector3f(0, 0, 0), new Vector3f(1, 1, 1), meshes[i]);
 	}
-    }
 
-    // the following methods are getters
-    public Mesh[] getMeshes() {
-	return meshes;
-    }
+	offsetX = new float[objects.length];
+	offsetY = new float[objects.length];
+	tickMovementX = new float[objects.length];
+	tickMovementY = new float[objects.length];
+	moved = new int[objects.length];
+	place();
 
-    public GameObject[] getObjects() {
-	return objects;
+	// the paddles are drawn with round ends
+	meshes[BLUE_PADDLE].setRounded(true);
+	meshes[RED_PADDLE].setRounded(true);
     }
 
-    // update the positions of the textures in the game
-    public void update() {
-	/*
-	 * this is where the game will be updated. All instructions for how the
-	 * game should be updated should be put here
-	 */
-	Vector3f[] movements = pongUpdate(meshes[32].getVertices()[0].getPosition().getY(),
-		meshes[33].getVertices()[0].getPosition().getY(), circleCenters[0]);
-	updateRectangle(32, movements[0]);
-	updateRectangle(33, movements[1]);
-	updateCircle(2, 31, movements[2], 0);
-	// the hearts
-	if (movements[4].getY() != 0.0f) {
-	    updateSquare(36, movements[4]);
-	    resetCircle(2, 31, new Vector3f(0.0f, 0.0f, 0.0f), 0);
-	    lastFrameBallMovement = new Vector3f(0.0f, 0.0f, 0.0f);
-	} else if (movements[5].getY() != 0.0f) {
-	    updateSquare(35, movements[5]);
-	    resetCircle(2, 31, new Vector3f(0.0f, 0.0f, 0.0f), 0);
-	    lastFrameBallMovement = new Vector3f(0.0f, 0.0f, 0.0f);
-	} else if (movements[6].getY() != 0.0f) {
-	    updateSquare(34, movements[6]);
-	    resetCircle(2, 31, new Vector3f(0.0f, 0.0f, 0.0f), 0);
-	    lastFrameBallMovement = new Vector3f(0.0f, 0.0f, 0.0f);
-	}
-	if (movements[7].getY() != 0.0f) {
-	    updateSquare(39, movements[7]);
-	    resetCircle(2, 31, new Vector3f(0.0f, 0.0f, 0.0f), 0);
-	    lastFrameBallMovement = new Vector3f(0.0f, 0.0f, 0.0f);
-	} else if (movements[8].getY() != 0.0f) {
-	    updateSquare(38, movements[8]);
-	    resetCircle(2, 31, new Vector3f(0.0f, 0.0f, 0.0f), 0);
-	    lastFrameBallMovement = new Vector3f(0.0f, 0.0f, 0.0f);
-	} else if (movements[9].getY() != 0.0f) {
-	    updateSquare(37, movements[9]);
-	    resetCircle(2, 31, new Vector3f(0.0f, 0.0f, 0.0f), 0);
-	    lastFrameBallMovement = new Vector3f(0.0f, 0.0f, 0.0f);
+    /*
+     * write where everything is now (and how far it moved during the last
+     * tick) into a snapshot
+     * 
+     * this is called by the simulation thread after it ticks (check the
+     * SimulationThread class)
+     */
+    public void captureSnapshot(Snapshot snapshot) {
+	for (int i = 0; i < objects.length; i++) {
+	    snapshot.offsetX[i] = offsetX[i];
+	    snapshot.offsetY[i] = offsetY[i];
+	    snapshot.movementX[i] = tickMovementX[i];
+	    snapshot.movementY[i] = tickMovementY[i];
 	}
     }
 
-    // update the position of a square mesh
-    public void updateSquare(int index, Vector3f movement) {
-	meshes[index] = Square.moveSquare(meshes[index], movement, meshes[index].getMaterial().getPath());
-	objects[index] = new GameObject(new Vector3f(0, 0, 0), new Vector3f(0, 0, 0), new Vector3f(1, 1, 1),
-		meshes[index]);
+    /*
+     * move every object to where a snapshot says it is ("alpha" of the way
+     * between the tick before the snapshot and the snapshot, like
+     * interpolate())
+     * 
+     * this is used by the render thread when the game is ticked on another
+     * thread
+     */
+    public void applySnapshot(Snapshot snapshot, float alpha) {
+	movedCount = 0;
+	for (int i = 0; i < objects.length; i++) {
+	    moveTo(i, snapshot.offsetX[i] + ((alpha - 1.0f) * snapshot.movementX[i]),
+		    snapshot.offsetY[i] + ((alpha - 1.0f) * snapshot.movementY[i]));
+	}
     }
 
-    // update the position of a rectangle mesh
-    public void updateRectangle(int index, Vector3f movement) {
-	meshes[index] = Rectangle.moveRectangle(meshes[index], movement, null);
-	objects[index] = new GameObject(new Vector3f(0, 0, 0), new Vector3f(0, 0, 0), new Vector3f(1, 1, 1),
-		meshes[index]);
+    // the following methods are getters
+    public Mesh[] getMeshes() {
+	return meshes;
     }
 
-    // update the position of circle meshes
-    public void updateCircle(int firstIndex, int lastIndex, Vector3f movement, int circleIndex) {
-	circleCenters[circleIndex] = Vector3f.add(circleCenters[circleIndex], movement);
-	Mesh[] temp = Circle.generateCircle(circleCenters[circleIndex], Circle.getStandardCircleRadius(),
-		(lastIndex - firstIndex) + 1, circleColors[circleIndex]);
-
-	/*
-	 * cycle through all the indices on the main meshes[] array that have to
-	 * do with the circle and update them
-	 */
-	int tempCounter = 0;
-	for (int i = firstIndex; i <= lastIndex; i++) {
-	    meshes[i] = temp[tempCounter];
-	    objects[i] = new GameObject(new Vector3f(0, 0, 0), new Vector3f(0, 0, 0), new Vector3f(1, 1, 1), meshes[i]);
-	    tempCounter++;
-	}
+    public GameObject[] getObjects() {
+	return objects;
     }
 
-    // reset the position of circle meshes
-    public void resetCircle(int firstIndex, int lastIndex, Vector3f newPosition, int circleIndex) {
-	circleCenters[circleIndex] = newPosition;
-	Mesh[] temp = Circle.generateCircle(circleCenters[circleIndex], Circle.getStandardCircleRadius(),
-		(lastIndex - firstIndex) + 1, circleColors[circleIndex]);
+    public Pong getGame() {
+	return game;
+    }
 
-	/*
-	 * cycle through all the indices on the main meshes[] array that have to
-	 * do with the circle and update them
-	 */
-	int tempCounter = 0;
-	for (int i = firstIndex; i <= lastIndex; i++) {
-	    meshes[i] = temp[tempCounter];
-	    objects[i] = new GameObject(new Vector3f(0, 0, 0), new Vector3f(0, 0, 0), new Vector3f(1, 1, 1), meshes[i]);
-	    tempCounter++;
-	}
+    public int getMovedCount() {
+	return movedCount;
     }
 
-    // the pong logic
-    public Vector3f[] pongUpdate(float paddle1Y, float paddle2Y, Vector3f circleCenter) {
-	/*
-	 * the 0th index in the left paddle, the 1st index is the right paddle,
-	 * and the 2nd index is the circle
-	 * 
-	 * the 3rd index is the "Press Space" texture
-	 * 
-	 * the 4th-9th indices are the hearts (first the blue side hearts and
-	 * then the red side hearts)
-	 */
-	Vector3f[] movements =
-	    {
-		new Vector3f(0.0f, 0.0f, 0.0f),
-		new Vector3f(0.0f, 0.0f, 0.0f),
-		new Vector3f(0.0f, 0.0f, 0.0f),
-		new Vector3f(0.0f, 0.0f, 0.0f),
-		new Vector3f(0.0f, 0.0f, 0.0f),
-		new Vector3f(0.0f, 0.0f, 0.0f),
-		new Vector3f(0.0f, 0.0f, 0.0f),
-		new Vector3f(0.0f, 0.0f, 0.0f),
-		new Vector3f(0.0f, 0.0f, 0.0f),
-		new Vector3f(0.0f, 0.0f, 0.0f)
-	    };
+    // the k-th object that was moved by the last interpolate() or applySnapshot()
+    public GameObject getMoved(int k) {
+	return objects[moved[k]];
+    }
 
-	// only update the game if the game isn't paused
-	if (!gameStatus.paused) {
-	    /*
-	     * create a temporary circle center to deal with for the ball's
-	     * theoretical position
-	     */
-	    Vector3f tempCircleCenter = new Vector3f(circleCenter.getX(), circleCenter.getY(), circleCenter.getZ());
-
-	    // move the ball
-	    movements[2] = lastFrameBallMovement;
-	    /*
-	     * if the ball wasn't moving at all, initialize x and y movement for
-	     * it. If it just wasn't moving horizontally, only initialize x
-	     * movement
-	     */
-	    Random rand = new Random();
-	    float scaler = 0.000001f;
-	    if (movements[2].getX() == 0) {
-		if (rand.nextBoolean()) {
-		    movements[2].setX(0.125f * scaler);
-		} else {
-		    movements[2].setX(-0.125f * scaler);
-		}
-	    }
-	    // update the center of the ball to where it will be next frame
-	    tempCircleCenter = Vector3f.add(circleCenter, movements[2]);
-	    // collision check against the upper and lower bounds
-	    if ((tempCircleCenter.getY() + Circle.getStandardCircleRadius()) > (0.000007f - 0.0000003f)) {
-		movements[2].setY(movements[2].getY() * (float) -1.0);
-	    } else if ((tempCircleCenter.getY() - Circle.getStandardCircleRadius()) < -0.00000849f) {
-		movements[2].setY(movements[2].getY() * (float) -1.0);
-	    }
-	    /*
-	     * collision check against the paddles
-	     * 
-	     * only check against the left paddle if the ball is moving left and
-	     * the right paddle if the ball is moving right
-	     */
-	    float leftPaddleBottom = paddle1Y - Rectangle.getStandardRectangleLength(),
-		    rightPaddleBottom = paddle2Y - Rectangle.getStandardRectangleLength();
-	    if (movements[2].getX() < 0) {
-		movements[2] = ballPaddleCollisionCheckLeft(tempCircleCenter, movements[2], paddleStartingPositionX,
-			paddle1Y, Circle.getStandardCircleRadius(), Rectangle.getStandardRectangleLength(),
-			Rectangle.getStandardRectangleWidth());
-	    } else {
-		movements[2] = ballPaddleCollisionCheckRight(tempCircleCenter, movements[2],
-			(-1.0f * paddleStartingPositionX) - Rectangle.getStandardRectangleWidth(), paddle2Y,
-			Circle.getStandardCircleRadius(), Rectangle.getStandardRectangleLength(),
-			Rectangle.getStandardRectangleWidth());
-	    }
-	    // collision check if the ball is out of bounds
-	    if (tempCircleCenter.getX() < -0.0000157f) {
-		gameStatus.blueLives -= 1;
-		gameStatus.redPoint = true;
-		gameStatus.paused = true;
-		movements[3] = new Vector3f(0.0f, 1.0f, 0.0f);
-		movements[6 - gameStatus.blueLives] = new Vector3f(0.0f, 1.0f, 0.0f);
-		if (gameStatus.blueLives == 0) {
-		    gameStatus.redWins = true;
-		}
-	    } else if (tempCircleCenter.getX() > 0.0000157f) {
-		gameStatus.redLives -= 1;
-		gameStatus.bluePoint = true;
-		gameStatus.paused = true;
-		movements[3] = movements[3] = new Vector3f(0.0f, 1.0f, 0.0f);
-		movements[9 - gameStatus.redLives] = new Vector3f(0.0f, 1.0f, 0.0f);
-		if (gameStatus.redLives == 0) {
-		    gameStatus.blueWins = true;
-		}
-	    }
-	    // set last frame's movements to this frame
-	    lastFrameBallMovement = movements[2];
-
-	    // move the paddles
-	    if (Input.isKeyDown(GLFW.GLFW_KEY_W) && !(paddle1Y >= (0.000007f - 0.0000003f))) {
-		movements[0] = Vector3f.add(movements[0], paddleSpeed);
-	    }
-	    if (Input.isKeyDown(GLFW.GLFW_KEY_S)
-		    && !(paddle1Y <= (-0.00000849f + Rectangle.getStandardRectangleLength()))) {
-		movements[0] = Vector3f.subtract(movements[0], paddleSpeed);
-	    }
-	    if (Input.isKeyDown(GLFW.GLFW_KEY_UP) && !(paddle2Y >= (0.000007f - 0.0000003f))) {
-		movements[1] = Vector3f.add(movements[1], paddleSpeed);
-	    }
-	    if (Input.isKeyDown(GLFW.GLFW_KEY_DOWN)
-		    && !(paddle2Y <= (-0.00000849f + Rectangle.getStandardRectangleLength()))) {
-		movements[1] = Vector3f.subtract(movements[1], paddleSpeed);
-	    }
-
-	    /*
-	     * set paddleY to whatever the paddleY would be next frame (after
-	     * the movements has been factored in).
-	     * 
-	     * The reason we have to do this here is because we only want to
-	     * move the paddle based on collisions if it would have collided
-	     * next frame. If the paddle wouldn't have collided anyways
-	     * (because, with the movements, it wouldn't have violated the
-	     * borders) then there is no need to adjust the paddle based on the
-	     * borders
-	     */
-	    paddle1Y += movements[0].getY();
-	    paddle2Y += movements[1].getY();
-
-	    // move the paddles within the bounds
-	    if (paddle1Y >= 0.000007f) {
-		movements[0] = Vector3f.add(movements[0], new Vector3f(0.0f, 0.000007f - paddle1Y, 0.0f));
-	    }
-	    if ((paddle1Y - Rectangle.getStandardRectangleLength()) <= -0.00000849f) {
-		movements[0] = Vector3f.add(movements[0], new Vector3f(0.0f, -0.00000849f - leftPaddleBottom, 0.0f));
-	    }
-	    if (paddle2Y >= 0.000007f) {
-		movements[1] = Vector3f.add(movements[1], new Vector3f(0.0f, 0.000007f - paddle2Y, 0.0f));
-	    }
-	    if ((paddle2Y - Rectangle.getStandardRectangleLength()) <= -0.00000849f) {
-		movements[1] = Vector3f.add(movements[1], new Vector3f(0.0f, -0.00000849f - rightPaddleBottom, 0.0f));
-	    }
+    /*
+     * tick the game once
+     *
+     * "span" is how many of the game's ticks (check
+     * PongSimulation.TICK_RATE) one of our ticks lasts, so that the game plays
+     * at the same speed no matter what the tick rate is
+     */
+    public void update(float span) {
+	// what the players are pressing
+	input.blueUp = Input.isKeyDown(GLFW.GLFW_KEY_W);
+	input.blueDown = Input.isKeyDown(GLFW.GLFW_KEY_S);
+	input.redUp = Input.isKeyDown(GLFW.GLFW_KEY_UP);
+	input.redDown = Input.isKeyDown(GLFW.GLFW_KEY_DOWN);
+	input.serve = Input.isKeyDown(GLFW.GLFW_KEY_SPACE);
+
+	// remember where everything was, and then move the game forward
+	float ballX = game.ballX, ballY = game.ballY, bluePaddleY = game.bluePaddleY, redPaddleY = game.redPaddleY;
+	int lives = game.blueLives + game.redLives;
+	simulation.step(game, input, span);
+	place();
+
+	// remember how far everything moved (for interpolate())
+	tickMovementY[BLUE_PADDLE] = game.bluePaddleY - bluePaddleY;
+	tickMovementY[RED_PADDLE] = game.redPaddleY - redPaddleY;
+	if (game.blueLives + game.redLives == lives) {
+	    tickMovementX[BALL] = game.ballX - ballX;
+	    tickMovementY[BALL] = game.ballY - ballY;
 	} else {
-	    if (gameStatus.blueWins) {
-		System.out.println("blue wins");
-	    } else if (gameStatus.redWins) {
-		System.out.println("red wins");
-	    } else if (Input.isKeyDown(GLFW.GLFW_KEY_SPACE)) {
-		gameStatus.paused = false;
-//		movements[3] = movements[3] = new Vector3f(0.0f, -1.0f, 0.0f);
-	    }
+	    // the ball is put back in the middle after a point, so it shouldn't slide there
+	    tickMovementX[BALL] = 0.0f;
+	    tickMovementY[BALL] = 0.0f;
 	}
 
-	// return the movements that we want to happened to the paddles and ball
-	return movements;
+	if (!announced && (game.blueWins || game.redWins)) {
+	    System.out.println(game.blueWins ? "blue wins" : "red wins");
+	    announced = true;
+	}
     }
 
     /*
-     * check if the ball is touching the right paddle
+     * work out where every object should be from the game
      * 
-     * if the ball is touching a paddle, return what the new movement of the
-     * ball should be
+     * each heart is moved far off the screen once the life it stands for is
+     * lost (the blue side hearts go from the left, and the red side hearts go
+     * from the right)
      */
-    private Vector3f ballPaddleCollisionCheckLeft(Vector3f ballCenter, Vector3f movement, float paddleX, float paddleY,
-	    float ballRadius, float paddleLength, float paddleWidth) {
-	Vector3f nextMovement = movement;
-	float paddleVerticalMidpoint = paddleY - (paddleLength / 2.0f);
-	if (((ballCenter.getX() - ballRadius) < (paddleX + paddleWidth))
-		&& (ballCenter.getX() > (paddleX + paddleWidth))
-		&& ((ballCenter.getY() + ballRadius) >= (paddleY - paddleLength))
-		&& ((ballCenter.getY() - ballRadius) <= paddleY)) {
-	    /*
-	     * reverse the horizontal movement of the ball and add a little bit
-	     * of speed to the ball each time it hits the paddle
-	     */
-	    nextMovement.setX(nextMovement.getX() * -1.0f);
-	    if (Math.abs(nextMovement.getX()) < 0.0000004f) {
-		nextMovement.setX(nextMovement.getX() + ballSpeedIncrease);
-	    }
-
-	    /*
-	     * if the ball is above or below the middle of the paddle, change
-	     * its vertical movement correspondingly
-	     */
-	    float distanceToCenter = ballCenter.getY() - paddleVerticalMidpoint;
-	    float speedDifferential = ballSpeedModifier * Math.abs(distanceToCenter);
-	    if (distanceToCenter < 0) {
-		nextMovement.setY(nextMovement.getY() - speedDifferential);
-	    } else if (distanceToCenter > 0) {
-		nextMovement.setY(nextMovement.getY() + speedDifferential);
-	    }
-	} else if (((ballCenter.getX() - ballRadius) < (paddleX + paddleWidth))
-		&& (ballCenter.getX() <= (paddleX + paddleWidth)) && (ballCenter.getX() >= paddleX)
-		&& ((ballCenter.getY() + ballRadius) >= (paddleY - paddleLength))
-		&& ((ballCenter.getY() - ballRadius) <= paddleY)) {
-	    /*
-	     * if the ball is above or below the middle of the paddle, change
-	     * its vertical movement correspondingly
-	     */
-	    float distanceToCenter = ballCenter.getY() - paddleVerticalMidpoint;
-	    float speedDifferential = paddleSpeed.getY() + (ballSpeedModifier * Math.abs(distanceToCenter));
-	    if (distanceToCenter < 0) {
-		nextMovement.setY(nextMovement.getY() - speedDifferential);
-	    } else if (distanceToCenter > 0) {
-		nextMovement.setY(nextMovement.getY() + speedDifferential);
-	    }
+    private void place() {
+	offsetX[BALL] = game.ballX;
+	offsetY[BALL] = game.ballY;
+	offsetY[BLUE_PADDLE] = game.bluePaddleY - (PongSimulation.PADDLE_LENGTH / 2.0f);
+	offsetY[RED_PADDLE] = game.redPaddleY - (PongSimulation.PADDLE_LENGTH / 2.0f);
+	for (int i = 0; i < 3; i++) {
+	    offsetY[FIRST_HEART + i] = (i < game.blueLives) ? 0.0f : 1.0f;
+	    offsetY[FIRST_HEART + 3 + i] = (i < game.redLives) ? 0.0f : 1.0f;
 	}
-	return nextMovement;
     }
 
     /*
-     * check if the ball is touching the right paddle
-     * 
-     * if the ball is touching a paddle, return what the new movement of the
-     * ball should be
+     * move every object to where it should be drawn, "alpha" of the way
+     * between where it was at the second to last tick (0) and where it is now
+     * (1)
      */
-    private Vector3f ballPaddleCollisionCheckRight(Vector3f ballCenter, Vector3f movement, float paddleX, float paddleY,
-	    float ballRadius, float paddleLength, float paddleWidth) {
-	Vector3f nextMovement = movement;
-	float paddleVerticalMidpoint = paddleY - (paddleLength / 2.0f);
-	if (((ballCenter.getX() + ballRadius) > paddleX) && (ballCenter.getX() < paddleX)
-		&& ((ballCenter.getY() + ballRadius) >= (paddleY - paddleLength))
-		&& ((ballCenter.getY() - ballRadius) <= paddleY)) {
-	    /*
-	     * reverse the horizontal movement of the ball and add a little bit
-	     * of speed to the ball each time it hits the paddle
-	     */
-	    nextMovement.setX(nextMovement.getX() * -1.0f);
-	    if (Math.abs(nextMovement.getX()) < 0.0000004f) {
-		nextMovement.setX(nextMovement.getX() - ballSpeedIncrease);
-	    }
-
-	    /*
-	     * if the ball is above or below the middle of the paddle, change
-	     * its vertical movement correspondingly
-	     */
-	    float distanceToCenter = ballCenter.getY() - paddleVerticalMidpoint;
-	    float speedDifferential = ballSpeedModifier * Math.abs(distanceToCenter);
-	    if (distanceToCenter < 0) {
-		nextMovement.setY(nextMovement.getY() - speedDifferential);
-	    } else if (distanceToCenter > 0) {
-		nextMovement.setY(nextMovement.getY() + speedDifferential);
-	    }
-	} else if (((ballCenter.getX() - ballRadius) < (paddleX + paddleWidth))
-		&& (ballCenter.getX() <= (paddleX + paddleWidth)) && (ballCenter.getX() >= paddleX)
-		&& ((ballCenter.getY() + ballRadius) >= (paddleY - paddleLength))
-		&& ((ballCenter.getY() - ballRadius) <= paddleY)) {
-	    /*
-	     * if the ball is above or below the middle of the paddle, change
-	     * its vertical movement correspondingly
-	     */
-	    float distanceToCenter = ballCenter.getY() - paddleVerticalMidpoint;
-	    float speedDifferential = paddleSpeed.getY() + (ballSpeedModifier * Math.abs(distanceToCenter));
-	    if (distanceToCenter < 0) {
-		nextMovement.setY(nextMovement.getY() - speedDifferential);
-	    } else if (distanceToCenter > 0) {
-		nextMovement.setY(nextMovement.getY() + speedDifferential);
-	    }
+    public void interpolate(float alpha) {
+	movedCount = 0;
+	for (int i = 0; i < objects.length; i++) {
+	    moveTo(i, offsetX[i] + ((alpha - 1.0f) * tickMovementX[i]), offsetY[i] + ((alpha - 1.0f) * tickMovementY[i]));
+	}
+    }
+
+    // move an object (and remember that it moved, if it's not already there)
+    private void moveTo(int i, float x, float y) {
+	Vector3f position = objects[i].getPosition();
+	if (position.getX() != x || position.getY() != y) {
+	    position.setX(x);
+	    position.setY(y);
+	    moved[movedCount++] = i;
 	}
-	return nextMovement;
     }
 }
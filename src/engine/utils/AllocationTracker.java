@@ -0,0 +1,219 @@
+/*
+ * the AllocationTracker class
+ *
+ * this class is a debugging tool that checks that the game isn't allocating
+ * memory outside of the Java heap (native memory) every frame
+ *
+ * native memory (like the buffers made by MemoryUtil.memAllocFloat()) isn't
+ * cleaned up by the garbage collector. If something allocates it every frame
+ * and forgets to free it, the game slowly uses more and more memory the longer
+ * it runs. This class catches that as soon as it happens
+ *
+ * there are two checks:
+ *
+ * every allocation the render thread makes is counted (LWJGL is given a
+ * MemoryAllocator that counts them before passing them on to jemalloc), and a
+ * frame that makes any allocations at all fails - even if it frees them again
+ * before the frame ends
+ *
+ * LWJGL's debug allocator also remembers every allocation that hasn't been
+ * freed yet, so anything new that's still allocated at the end of a frame
+ * (from any thread) fails too
+ *
+ * it's turned off by default (because tracking allocations is slow). To turn
+ * it on, run the game with -Dpong.debugAllocations=true
+ *
+ * Aidin Yazdi
+ */
+
+package engine.utils;
+
+import java.util.HashSet;
+
+import org.lwjgl.system.Configuration;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.jemalloc.JEmallocAllocator;
+
+public class AllocationTracker {
+    // whether or not we're checking allocations
+    private static boolean enabled;
+
+    // whether or not we've started checking frames yet
+    private static boolean tracking;
+
+    // the addresses of all the native allocations alive at the last check
+    private static HashSet<Long> liveAllocations = new HashSet<Long>();
+
+    // the thread that draws the frames (only its allocations are counted)
+    private static Thread renderThread;
+
+    /*
+     * how many allocations the render thread has made since the last check,
+     * and where the first one was made
+     */
+    private static int frameAllocations;
+    private static Throwable firstAllocation;
+
+    /*
+     * turn on LWJGL's debug memory allocator if the game was asked to
+     *
+     * this must be called before anything in LWJGL allocates memory (so it
+     * should be the very first thing the game does)
+     */
+    public static void configure() {
+	enabled = Boolean.getBoolean("pong.debugAllocations");
+	if (enabled) {
+	    Configuration.DEBUG_MEMORY_ALLOCATOR.set(true);
+	    try {
+		Configuration.MEMORY_ALLOCATOR.set(new CountingAllocator(new JEmallocAllocator()));
+	    } catch (Throwable e) {
+		System.err.println("Can't count native allocations (jemalloc couldn't be loaded): " + e);
+	    }
+	    System.out.println("native allocation tracking enabled");
+	}
+    }
+
+    /*
+     * start checking frames
+     *
+     * everything that is allocated before this (while the game is starting
+     * up) is allowed. After this, every frame has to free everything it
+     * allocates
+     */
+    public static void start() {
+	if (!enabled) {
+	    return;
+	}
+
+	liveAllocations.clear();
+	MemoryUtil.memReport((address, memory, threadId, threadName, stacktrace) -> liveAllocations.add(address));
+	renderThread = Thread.currentThread();
+	frameAllocations = 0;
+	firstAllocation = null;
+	tracking = true;
+    }
+
+    // count one allocation (this is called by the CountingAllocator)
+    private static void countAllocation() {
+	if (tracking && Thread.currentThread() == renderThread) {
+	    if (frameAllocations == 0) {
+		firstAllocation = new Throwable("the first allocation");
+	    }
+	    frameAllocations++;
+	}
+    }
+
+    /*
+     * check that the render thread didn't allocate any native memory, and
+     * that no new native memory is still allocated, since the last check (call
+     * this once at the end of every frame)
+     *
+     * if either happened, this throws an error that says where the memory was
+     * allocated
+     */
+    public static void checkFrame() {
+	if (!tracking) {
+	    return;
+	}
+
+	if (frameAllocations > 0) {
+	    int count = frameAllocations;
+	    Throwable first = firstAllocation;
+	    frameAllocations = 0;
+	    firstAllocation = null;
+	    throw new AssertionError("native memory was allocated " + count + " times this frame", first);
+	}
+
+	HashSet<Long> current = new HashSet<Long>();
+	StringBuilder leaks = new StringBuilder();
+	MemoryUtil.memReport((address, memory, threadId, threadName, stacktrace) -> {
+	    current.add(address);
+	    if (!liveAllocations.contains(address)) {
+		leaks.append("\n  ").append(memory).append(" bytes on thread \"").append(threadName).append("\"");
+		for (StackTraceElement element : stacktrace) {
+		    leaks.append("\n    at ").append(element);
+		}
+	    }
+	});
+	liveAllocations = current;
+
+	if (leaks.length() > 0) {
+	    throw new AssertionError("native memory was allocated this frame and not freed:" + leaks);
+	}
+    }
+
+    // whether or not allocation tracking is turned on
+    public static boolean isEnabled() {
+	return enabled;
+    }
+
+    /*
+     * a MemoryAllocator that counts every allocation and then passes it on to
+     * another allocator (which does the actual allocating)
+     *
+     * the function pointers are passed straight through, so native code that
+     * allocates by itself (like stb_image) isn't counted - only allocations
+     * made from Java (like MemoryUtil.memAlloc())
+     */
+    private static class CountingAllocator implements MemoryUtil.MemoryAllocator {
+	// the allocator that actually allocates the memory
+	private MemoryUtil.MemoryAllocator allocator;
+
+	// the constructor
+	public CountingAllocator(MemoryUtil.MemoryAllocator allocator) {
+	    this.allocator = allocator;
+	}
+
+	public long getMalloc() {
+	    return allocator.getMalloc();
+	}
+
+	public long getCalloc() {
+	    return allocator.getCalloc();
+	}
+
+	public long getRealloc() {
+	    return allocator.getRealloc();
+	}
+
+	public long getFree() {
+	    return allocator.getFree();
+	}
+
+	public long getAlignedAlloc() {
+	    return allocator.getAlignedAlloc();
+	}
+
+	public long getAlignedFree() {
+	    return allocator.getAlignedFree();
+	}
+
+	public long malloc(long size) {
+	    countAllocation();
+	    return allocator.malloc(size);
+	}
+
+	public long calloc(long num, long size) {
+	    countAllocation();
+	    return allocator.calloc(num, size);
+	}
+
+	public long realloc(long ptr, long size) {
+	    countAllocation();
+	    return allocator.realloc(ptr, size);
+	}
+
+	public void free(long ptr) {
+	    allocator.free(ptr);
+	}
+
+	public long aligned_alloc(long alignment, long size) {
+	    countAllocation();
+	    return allocator.aligned_alloc(alignment, size);
+	}
+
+	public void aligned_free(long ptr) {
+	    allocator.aligned_free(ptr);
+	}
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * the FixedTimestep class
+ *
+ * this class decides how many times the game should be updated ("ticked") each
+ * frame, so that the game always runs at the same speed no matter how fast the
+ * frames are drawn
+ *
+ * before, the game was updated exactly once per frame. Every movement in the
+ * game is a fixed distance per update, so on a 144 Hz monitor everything moved
+ * 2.4 times as fast as on a 60 Hz monitor. Now the game is updated a fixed
+ * number of times per second (the tick rate), and the frames are drawn as fast
+ * as they're drawn
+ *
+ * this works with an "accumulator": every frame, the time since the last frame
+ * is added to it, and then the game is ticked once for every full tick that
+ * fits in it. Whatever is left over (less than one tick) stays in the
+ * accumulator for the next frame
+ *
+ * the leftover time is also used to draw the game smoothly: getAlpha() says how
+ * far (from 0 to 1) we are between the last tick and the next one, so anything
+ * that moved during the last tick can be drawn that far between where it was
+ * and where it is (check ToRender.interpolate())
+ *
+ * if the game falls way behind (the window was dragged, or the computer was
+ * busy), it only ticks up to maxTicks times in one frame and then forgets about
+ * the rest of the time. Otherwise it could spend so long catching up that it
+ * falls even further behind
+ *
+ * the tick rate can be changed with -Dpong.tickRate=<ticks per second> (60 by
+ * default, which is how fast the game was tuned to run). Changing it doesn't
+ * change how fast the game plays - each tick just moves the game by a
+ * different amount of time (check ToRender.update())
+ *
+ * Aidin Yazdi
+ */
+
+package engine.utils;
+
+public class FixedTimestep {
+    // how long one tick is (in nanoseconds)
+    private long tickLength;
+
+    // the most ticks that can happen in one frame
+    private int maxTicks;
+
+    // the time that hasn't been ticked yet (in nanoseconds)
+    private long accumulator;
+
+    // when the last frame started (0 before the first frame)
+    private long lastTime;
+
+    // how many ticks have happened in total
+    private long ticks;
+
+    // how much time had to be thrown away because the game fell behind
+    private long droppedTime;
+
+    // the constructor
+    public FixedTimestep(double ticksPerSecond, int maxTicks) {
+	this.tickLength = (long) (1000000000.0 / ticksPerSecond);
+	this.maxTicks = maxTicks;
+    }
+
+    /*
+     * call this once at the start of every frame
+     *
+     * this returns how many times the game should be ticked this frame (which
+     * can be 0 if the frames are drawn faster than the tick rate)
+     */
+    public int advance() {
+	long now = System.nanoTime();
+	if (lastTime == 0) {
+	    // the first frame just starts the clock
+	    lastTime = now;
+	    return 0;
+	}
+	accumulator += now - lastTime;
+	lastTime = now;
+
+	int count = (int) Math.min(accumulator / tickLength, maxTicks);
+	accumulator -= count * tickLength;
+
+	// forget about any time we can't catch up on
+	if (accumulator >= tickLength) {
+	    droppedTime += accumulator - (accumulator % tickLength);
+	    accumulator %= tickLength;
+	}
+
+	ticks += count;
+	return count;
+    }
+
+    // the following methods are getters
+    /*
+     * how far we are between the last tick and the next one (0 is right at
+     * the last tick and 1 would be right at the next one)
+     */
+    public float getAlpha() {
+	return (float) accumulator / (float) tickLength;
+    }
+
+    public long getTickLength() {
+	return tickLength;
+    }
+
+    public long getTicks() {
+	return ticks;
+    }
+
+    public long getDroppedTime() {
+	return droppedTime;
+    }
+}
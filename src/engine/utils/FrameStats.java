@@ -0,0 +1,86 @@
+/*
+ * the FrameStats class
+ *
+ * this class keeps count of how much work the engine does each frame (so that
+ * we can actually see if an optimization helped)
+ *
+ * the counts go up during the frame, and endFrame() (which should be called
+ * once at the end of every frame) saves them as the last frame's counts and
+ * starts counting again from zero
+ *
+ * Aidin Yazdi
+ */
+
+package engine.utils;
+
+public class FrameStats {
+    /*
+     * the counts for the frame that is currently happening and the counts for
+     * the last frame that finished
+     */
+    private static int uniformUploads, lastUniformUploads;
+    private static int drawCalls, lastDrawCalls;
+    private static int stateChanges, lastStateChanges;
+    private static int stateChangesAvoided, lastStateChangesAvoided;
+
+    // count one draw call (one glDraw* function)
+    public static void countDrawCall() {
+	drawCalls++;
+    }
+
+    // count one OpenGL state change (binding a shader, texture, VAO, etc.)
+    public static void countStateChange() {
+	stateChanges++;
+    }
+
+    /*
+     * count one OpenGL state change that didn't have to happen (because what
+     * would have been bound was already bound)
+     */
+    public static void countStateChangeAvoided() {
+	stateChangesAvoided++;
+    }
+
+    // count one uniform being sent to the GPU
+    public static void countUniformUpload() {
+	uniformUploads++;
+    }
+
+    // call this once at the end of every frame
+    public static void endFrame() {
+	lastUniformUploads = uniformUploads;
+	uniformUploads = 0;
+	lastDrawCalls = drawCalls;
+	drawCalls = 0;
+	lastStateChanges = stateChanges;
+	stateChanges = 0;
+	lastStateChangesAvoided = stateChangesAvoided;
+	stateChangesAvoided = 0;
+    }
+
+    /*
+     * a short summary of the last frame (this is printed next to the FPS once
+     * per second)
+     */
+    public static String report() {
+	return "draw calls/frame: " + lastDrawCalls + " | uniform uploads/frame: " + lastUniformUploads
+		+ " | state changes/frame: " + lastStateChanges + " (" + lastStateChangesAvoided + " avoided)";
+    }
+
+    // the following methods are getters (they return the last frame's counts)
+    public static int getUniformUploads() {
+	return lastUniformUploads;
+    }
+
+    public static int getDrawCalls() {
+	return lastDrawCalls;
+    }
+
+    public static int getStateChanges() {
+	return lastStateChanges;
+    }
+
+    public static int getStateChangesAvoided() {
+	return lastStateChangesAvoided;
+    }
+}
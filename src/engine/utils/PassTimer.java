@@ -0,0 +1,243 @@
+/*
+ * the PassTimer class
+ *
+ * this class measures how long each part (each "pass") of a frame takes, both
+ * on the CPU and on the GPU
+ *
+ * the FPS counter only tells us how long whole frames take. A frame is made of
+ * a few passes (clearing the screen, drawing the game, drawing the HUD, and
+ * swapping the buffers), and each of them takes time on the CPU (telling
+ * OpenGL what to do) and on the GPU (actually doing it). Those two can be very
+ * different, so both are measured
+ *
+ * the CPU time is just measured with System.nanoTime(). The GPU time is
+ * measured with GL_TIME_ELAPSED queries: a query is started before the pass
+ * and ended after it, and the GPU writes down how long everything in between
+ * took. The GPU is usually a frame or two behind the CPU though, so the result
+ * isn't ready right away - and asking for it before it's ready would make the
+ * CPU wait for the GPU. So there's a ring of queries (FRAMES frames' worth),
+ * and the results of a frame are only read FRAMES frames later, when they're
+ * almost always ready. A result that still isn't ready is skipped (and counted
+ * as "late") instead of waiting for it
+ *
+ * only one GL_TIME_ELAPSED query can be running at a time, so passes can't be
+ * inside of each other
+ *
+ * this is turned off unless the game is run with -Dpong.profile=true (so it
+ * doesn't cost anything normally)
+ *
+ * Aidin Yazdi
+ */
+
+package engine.utils;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+
+public class PassTimer {
+    // the passes of a frame
+    public static final int CLEAR = 0, SCENE = 1, HUD = 2, SWAP = 3;
+    public static final int PASSES = 4;
+
+    // the names of the passes (for the report)
+    private static final String[] NAMES =
+	{
+	    "clear",
+	    "scene",
+	    "hud",
+	    "swap"
+	};
+
+    // how many frames of queries there are (how late the results are read)
+    private static final int FRAMES = 4;
+
+    // whether or not the passes are being timed
+    private static final boolean ENABLED = Boolean.getBoolean("pong.profile");
+
+    /*
+     * the query objects (FRAMES frames of PASSES queries each), and whether
+     * each of them was actually used
+     */
+    private static int[] queries;
+    private static boolean[] issued = new boolean[FRAMES * PASSES];
+
+    // which frame of the ring is being recorded right now
+    private static int frame;
+
+    // the pass whose GPU query is running (-1 if none is)
+    private static int activePass = -1;
+
+    /*
+     * when each pass started this frame (on the CPU), and whether it's been
+     * started and not ended yet
+     */
+    private static long[] cpuStart = new long[PASSES];
+    private static boolean[] running = new boolean[PASSES];
+
+    // the last time of each pass (in milliseconds)
+    private static double[] cpuLast = new double[PASSES], gpuLast = new double[PASSES];
+
+    /*
+     * the total time of each pass and how many times it was measured since
+     * the last report (so that the report shows averages)
+     */
+    private static double[] cpuTotal = new double[PASSES], gpuTotal = new double[PASSES];
+    private static int[] cpuSamples = new int[PASSES], gpuSamples = new int[PASSES];
+
+    // how many GPU results weren't ready in time (and were skipped)
+    private static int late;
+
+    /*
+     * create the queries
+     *
+     * this has to happen after the window is created
+     */
+    public static void create() {
+	if (ENABLED && queries == null) {
+	    queries = new int[FRAMES * PASSES];
+	    GL15.glGenQueries(queries);
+	}
+    }
+
+    // start timing a pass
+    public static void begin(int pass) {
+	if (!ENABLED) {
+	    return;
+	}
+
+	cpuStart[pass] = System.nanoTime();
+	running[pass] = true;
+
+	if (queries == null) {
+	    return;
+	}
+	if (activePass != -1) {
+	    System.err.println("ERROR: the " + NAMES[pass] + " pass was started inside of the " + NAMES[activePass]
+		    + " pass");
+	    return;
+	}
+	int index = (frame * PASSES) + pass;
+	GL15.glBeginQuery(GL33.GL_TIME_ELAPSED, queries[index]);
+	issued[index] = true;
+	activePass = pass;
+    }
+
+    /*
+     * stop timing a pass
+     *
+     * ending a pass that isn't running doesn't do anything (so a pass can
+     * safely be ended twice)
+     */
+    public static void end(int pass) {
+	if (!ENABLED || !running[pass]) {
+	    return;
+	}
+	running[pass] = false;
+
+	if (activePass == pass) {
+	    GL15.glEndQuery(GL33.GL_TIME_ELAPSED);
+	    activePass = -1;
+	}
+
+	cpuLast[pass] = (System.nanoTime() - cpuStart[pass]) / 1000000.0;
+	cpuTotal[pass] += cpuLast[pass];
+	cpuSamples[pass]++;
+    }
+
+    /*
+     * call this once at the end of every frame
+     *
+     * this moves on to the next frame of the ring, and reads the results of
+     * the queries that were made there FRAMES frames ago (before they're used
+     * again)
+     */
+    public static void endFrame() {
+	if (queries == null) {
+	    return;
+	}
+
+	frame = (frame + 1) % FRAMES;
+	for (int pass = 0; pass < PASSES; pass++) {
+	    int index = (frame * PASSES) + pass;
+	    if (!issued[index]) {
+		continue;
+	    }
+	    issued[index] = false;
+
+	    // never wait for a result - if it isn't ready, just skip it
+	    if (GL15.glGetQueryObjecti(queries[index], GL15.GL_QUERY_RESULT_AVAILABLE) == 0) {
+		late++;
+		continue;
+	    }
+	    gpuLast[pass] = GL33.glGetQueryObjectui64(queries[index], GL15.GL_QUERY_RESULT) / 1000000.0;
+	    gpuTotal[pass] += gpuLast[pass];
+	    gpuSamples[pass]++;
+	}
+    }
+
+    /*
+     * the average time of each pass since the last report (this is printed
+     * next to the FPS once per second)
+     *
+     * this returns an empty String if the passes aren't being timed
+     */
+    public static String report() {
+	if (!ENABLED) {
+	    return "";
+	}
+
+	StringBuilder result = new StringBuilder("ms cpu/gpu:");
+	for (int pass = 0; pass < PASSES; pass++) {
+	    if (cpuSamples[pass] == 0 && gpuSamples[pass] == 0) {
+		continue;
+	    }
+	    result.append(' ').append(NAMES[pass]).append(' ');
+	    result.append(String.format("%.3f/%.3f", average(cpuTotal[pass], cpuSamples[pass]),
+		    average(gpuTotal[pass], gpuSamples[pass])));
+	    cpuTotal[pass] = 0;
+	    cpuSamples[pass] = 0;
+	    gpuTotal[pass] = 0;
+	    gpuSamples[pass] = 0;
+	}
+	if (late > 0) {
+	    result.append(" (").append(late).append(" late)");
+	    late = 0;
+	}
+	return result.toString();
+    }
+
+    // an average that is 0 if there's nothing to average
+    private static double average(double total, int samples) {
+	return (samples == 0) ? 0 : total / samples;
+    }
+
+    // delete the queries to free up system resources
+    public static void destroy() {
+	if (queries != null) {
+	    GL15.glDeleteQueries(queries);
+	    queries = null;
+	}
+    }
+
+    // the following methods are getters
+    public static boolean isEnabled() {
+	return ENABLED;
+    }
+
+    // the last CPU time of a pass (in milliseconds)
+    public static double getCpuMillis(int pass) {
+	return cpuLast[pass];
+    }
+
+    /*
+     * the last GPU time of a pass that has been read back (in milliseconds -
+     * this is from FRAMES frames ago)
+     */
+    public static double getGpuMillis(int pass) {
+	return gpuLast[pass];
+    }
+
+    public static String getName(int pass) {
+	return NAMES[pass];
+    }
+}
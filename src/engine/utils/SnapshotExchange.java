@@ -0,0 +1,119 @@
+/*
+ * the SnapshotExchange class
+ *
+ * this class passes snapshots of something (like the state of the game) from
+ * one thread to another without either thread ever having to wait for the
+ * other one (no locks)
+ *
+ * it's a "triple buffer": there are three snapshots. The writing thread always
+ * has one to write into (the back one), the reading thread always has one to
+ * read from (the front one), and the third one sits in the middle. When the
+ * writer is done with a snapshot it swaps it with the middle one, and when the
+ * reader wants the newest snapshot it swaps its front one with the middle one.
+ * Both swaps are one atomic operation, so neither thread ever sees a snapshot
+ * that the other one is still using
+ *
+ * the middle slot also remembers whether it holds a snapshot the reader hasn't
+ * seen yet (the FRESH bit). That's how the two counters work:
+ *
+ * dropped - a snapshot was written but the reader never picked it up before
+ * the next one replaced it (the writer is faster than the reader)
+ *
+ * duplicated - the reader asked for a snapshot but nothing new had been
+ * written, so it got the same one again (the reader is faster than the writer)
+ *
+ * nothing is allocated after the constructor, so this can be used every frame
+ *
+ * Aidin Yazdi
+ */
+
+package engine.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class SnapshotExchange<T> {
+    // the bit in the middle slot that says it hasn't been read yet
+    private static final int FRESH = 4;
+
+    // the index part of the middle slot
+    private static final int INDEX = 3;
+
+    // the three snapshots
+    private T[] snapshots;
+
+    /*
+     * which snapshot is in the middle (and whether it's fresh). This is the
+     * only thing both threads touch
+     */
+    private AtomicInteger middle = new AtomicInteger(1);
+
+    // the snapshot the writer is writing into (only used by the writer)
+    private int back = 0;
+
+    // the snapshot the reader is reading from (only used by the reader)
+    private int front = 2;
+
+    // the counters (check the comment at the top)
+    private AtomicInteger dropped = new AtomicInteger(), duplicated = new AtomicInteger();
+
+    /*
+     * the constructor
+     *
+     * "factory" makes each of the three snapshots
+     */
+    @SuppressWarnings("unchecked")
+    public SnapshotExchange(Supplier<T> factory) {
+	snapshots = (T[]) new Object[]
+	    {
+		factory.get(),
+		factory.get(),
+		factory.get()
+	    };
+    }
+
+    /*
+     * the snapshot to write the next state into (only the writing thread can
+     * call this)
+     */
+    public T getBack() {
+	return snapshots[back];
+    }
+
+    /*
+     * hand the snapshot that was just written over to the reader (only the
+     * writing thread can call this)
+     */
+    public void publish() {
+	int old = middle.getAndSet(back | FRESH);
+	if ((old & FRESH) != 0) {
+	    dropped.incrementAndGet();
+	}
+	back = old & INDEX;
+    }
+
+    /*
+     * get the newest snapshot (only the reading thread can call this)
+     *
+     * the snapshot stays the reader's until the next time this is called. If
+     * nothing new was published since last time, this returns the same
+     * snapshot again
+     */
+    public T acquire() {
+	if ((middle.get() & FRESH) == 0) {
+	    duplicated.incrementAndGet();
+	    return snapshots[front];
+	}
+	front = middle.getAndSet(front) & INDEX;
+	return snapshots[front];
+    }
+
+    // the following methods are getters
+    public int getDropped() {
+	return dropped.get();
+    }
+
+    public int getDuplicated() {
+	return duplicated.get();
+    }
+}
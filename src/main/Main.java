@@ -11,13 +11,26 @@ package main;
 
 import org.lwjgl.glfw.GLFW;
 
+import engine.graphics.CameraBuffer;
+import engine.graphics.IndirectRenderer;
+import engine.graphics.ProgramCache;
 import engine.graphics.Renderer;
 import engine.graphics.Shader;
+import engine.graphics.SpriteBatch;
+import engine.graphics.TextureAtlas;
+import engine.graphics.TextureLoader;
 import engine.io.Input;
 import engine.io.Window;
 import engine.maths.Vector3f;
 import engine.objects.Camera;
+import engine.objects.SimulationThread;
+import engine.objects.Snapshot;
 import engine.objects.ToRender;
+import engine.utils.AllocationTracker;
+import engine.utils.FixedTimestep;
+import engine.utils.FrameStats;
+import engine.utils.PassTimer;
+import pong.PongSimulation;
 
 /*
  * idk why I have to implement Runnable. I guess it's some sort of interface
@@ -63,6 +76,66 @@ public class Main implements Runnable {
     // the shader
     public Shader shader;
 
+    // the shader the renderer uses to draw instances
+    public Shader instancedShader;
+
+    /*
+     * the sprite batch (to render all the meshes at once) and the shader it
+     * uses
+     */
+    public SpriteBatch batch;
+    public Shader batchShader;
+
+    /*
+     * the indirect renderer (to render every mesh with one multi-draw call)
+     * and the shader it uses
+     */
+    public IndirectRenderer indirectRenderer;
+    public Shader indirectShader;
+
+    /*
+     * how the game should be drawn. This can be changed by running the game
+     * with -Dpong.renderer=<mode>
+     * 
+     * "batch" - everything is drawn together by the SpriteBatch (the default)
+     * 
+     * "mesh" - every object is drawn by itself by the Renderer
+     * 
+     * "instanced" - every object is drawn as an instance of one unit square by
+     * the Renderer
+     * 
+     * "indirect" - every object is drawn by the IndirectRenderer with one call
+     * to glMultiDrawElementsIndirect
+     */
+    public final String renderMode = System.getProperty("pong.renderer", "batch");
+
+    /*
+     * how many times per second the game is updated (this can be changed by
+     * running the game with -Dpong.tickRate=<ticks per second>), and the clock
+     * that decides how many updates happen each frame
+     * 
+     * at most 8 updates happen in one frame (check the FixedTimestep class)
+     * 
+     * the game itself always plays at the same speed. At a different tick
+     * rate, each update just moves the game by more or less than one of its
+     * ticks (tickSpan of them - check PongSimulation.TICK_RATE)
+     */
+    public final double tickRate = Double.parseDouble(System.getProperty("pong.tickRate", "60"));
+    public FixedTimestep timestep = new FixedTimestep(tickRate, 8);
+    public final float tickSpan = (float) (PongSimulation.TICK_RATE / tickRate);
+
+    /*
+     * whether or not the game is ticked on its own thread (this can be turned
+     * on by running the game with -Dpong.threads=true), and the thread that
+     * ticks it
+     * 
+     * when it's turned on, toRender is never ticked - it's only moved to match
+     * the snapshots the simulation thread makes (check the SimulationThread
+     * class)
+     */
+    public final boolean threaded = Boolean.getBoolean("pong.threads");
+    public SimulationThread simulation;
+
     // the method that starts the game
     public void start() {
 	/*
@@ -97,12 +170,9 @@ public class Main implements Runnable {
 	 * source code of the Shader class)
 	 */
 	shader = new Shader("/shaders/mainVertex.glsl", "/shaders/mainFragment.glsl");
-
-	/*
-	 * this method initializes the renderer. The source code can be found in
-	 * the Renderer class
-	 */
-	renderer = new Renderer(window, shader);
+	batchShader = new Shader("/shaders/batchVertex.glsl", "/shaders/mainFragment.glsl");
+	instancedShader = new Shader("/shaders/instancedVertex.glsl", "/shaders/mainFragment.glsl");
+	indirectShader = new Shader("/shaders/indirectVertex.glsl", "/shaders/mainFragment.glsl");
 
 	// sets the background color of the window
 	window.setBackgroundColor(0.0f, 0.0f, 0.0f);
@@ -113,6 +183,13 @@ public class Main implements Runnable {
 	 */
 	window.create();
 
+	/*
+	 * this packs all the textures into one texture. It has to happen before
+	 * the meshes are created so that their materials can find their part of
+	 * it. The source code can be found in the TextureAtlas class
+	 */
+	TextureAtlas.create(ToRender.TEXTURES);
+
 	/*
 	 * this method creates the meshes. The source code can be found in the
 	 * Mesh class
@@ -126,6 +203,54 @@ public class Main implements Runnable {
 	 * Shader class
 	 */
 	shader.create();
+	batchShader.create();
+	instancedShader.create();
+	indirectShader.create();
+	if (ProgramCache.isEnabled()) {
+	    System.out.println("loaded " + ProgramCache.getHits() + " shader programs from the cache and compiled "
+		    + ProgramCache.getMisses());
+	}
+
+	/*
+	 * this creates the uniform buffer that holds the view and projection
+	 * matrices for every shader. The source code can be found in the
+	 * CameraBuffer class
+	 */
+	CameraBuffer.create();
+
+	/*
+	 * this creates the queries that time each pass of a frame on the GPU
+	 * (only if the game was run with -Dpong.profile=true). The source code
+	 * can be found in the PassTimer class
+	 */
+	PassTimer.create();
+
+	/*
+	 * this method initializes the renderer. The source code can be found in
+	 * the Renderer class
+	 * 
+	 * this has to happen after the shader is created because the renderer
+	 * looks up the shader's uniforms
+	 */
+	renderer = new Renderer(window, shader, instancedShader);
+	renderer.create();
+	batch = new SpriteBatch(window, batchShader);
+	batch.create();
+	indirectRenderer = new IndirectRenderer(window, indirectShader);
+	indirectRenderer.create(toRender.getObjects());
+
+	/*
+	 * everything the game needs has been allocated now. If allocation
+	 * tracking is turned on, every frame after this point has to free all
+	 * the native memory it allocates (check the AllocationTracker class)
+	 */
+	AllocationTracker.start();
+
+	// start ticking the game on its own thread (if that's turned on)
+	if (threaded) {
+	    simulation = new SimulationThread(tickRate);
+	    simulation.start();
+	}
 
 	System.out.println("the game has been initialized");
     }
@@ -191,31 +316,130 @@ public class Main implements Runnable {
 	// update the camera
 	// camera.update();
 
-	// update all the meshes
-	for (int i = 0; i < toRender.getMeshes().length; i++) {
-	    toRender.getMeshes()[i].destroy();
+	/*
+	 * update the game (tick it) however many times it should be ticked this
+	 * frame, so that it runs at the same speed no matter how fast the frames
+	 * are drawn (check the FixedTimestep class)
+	 */
+	if (threaded) {
+	    // the game is ticked on the simulation thread, so just draw its newest snapshot
+	    Snapshot snapshot = simulation.acquire();
+	    toRender.applySnapshot(snapshot, simulation.getAlpha(snapshot));
+	} else {
+	    int ticks = timestep.advance();
+	    for (int i = 0; i < ticks; i++) {
+		toRender.update(tickSpan);
+	    }
+
+	    /*
+	     * draw the ball and paddles part of the way between where they were
+	     * at the last tick and where they are now, so that they move
+	     * smoothly even if the frames don't line up with the ticks
+	     */
+	    toRender.interpolate(timestep.getAlpha());
 	}
-	toRender.update();
-	for (int i = 0; i < toRender.getMeshes().length; i++) {
-	    toRender.getMeshes()[i].create();
+
+	/*
+	 * send any textures that finished loading in the background to the GPU
+	 * (only for a short amount of time each frame). The source code can be
+	 * found in the TextureLoader class
+	 */
+	TextureLoader.update();
+
+	/*
+	 * update all the meshes
+	 * 
+	 * the meshes are only created once (in init()). After that, any mesh
+	 * that moved just gets its new vertices written into the buffers it
+	 * already has on the GPU
+	 * 
+	 * the SpriteBatch reads the vertices straight from the meshes every
+	 * frame, so the meshes' own buffers only need updating when every mesh
+	 * is drawn by itself
+	 */
+	if (renderMode.equals("mesh")) {
+	    for (int i = 0; i < toRender.getMeshes().length; i++) {
+		toRender.getMeshes()[i].update();
+	    }
 	}
     }
 
     // render the game
     private void render() {
-	// render the mesh
-	for (int i = 0; i < toRender.getObjects().length; i++) {
-	    renderer.renderMesh(toRender.getObjects()[i], camera);
+	/*
+	 * time how long drawing the game takes (check the PassTimer class). The
+	 * clear pass is timed by the window
+	 */
+	PassTimer.begin(PassTimer.SCENE);
+	if (renderMode.equals("mesh")) {
+	    /*
+	     * render every mesh by itself (the renderer sorts them first so that
+	     * as little as possible has to be bound between them)
+	     */
+	    for (int i = 0; i < toRender.getObjects().length; i++) {
+		renderer.submit(toRender.getObjects()[i]);
+	    }
+	    renderer.flush(camera);
+	} else if (renderMode.equals("instanced")) {
+	    // render every mesh as an instance of the same square
+	    renderer.renderInstanced(toRender.getObjects(), camera);
+	} else if (renderMode.equals("indirect")) {
+	    /*
+	     * render every mesh with one multi-draw call (only the objects that
+	     * moved this frame are sent to the GPU again)
+	     */
+	    for (int i = 0; i < toRender.getMovedCount(); i++) {
+		indirectRenderer.markChanged(toRender.getMoved(i));
+	    }
+	    indirectRenderer.render(camera);
+	} else if (PassTimer.isEnabled()) {
+	    /*
+	     * when the passes are being timed, the game and the HUD (the hearts)
+	     * are drawn in two batches, so that they can be timed by themselves
+	     */
+	    batch.begin(camera);
+	    for (int i = 0; i < ToRender.FIRST_HEART; i++) {
+		batch.draw(toRender.getObjects()[i]);
+	    }
+	    batch.end();
+	    PassTimer.end(PassTimer.SCENE);
+
+	    PassTimer.begin(PassTimer.HUD);
+	    batch.begin(camera);
+	    for (int i = ToRender.FIRST_HEART; i < toRender.getObjects().length; i++) {
+		batch.draw(toRender.getObjects()[i]);
+	    }
+	    batch.end();
+	    PassTimer.end(PassTimer.HUD);
+	} else {
+	    // render all the meshes together
+	    batch.begin(camera);
+	    for (int i = 0; i < toRender.getObjects().length; i++) {
+		batch.draw(toRender.getObjects()[i]);
+	    }
+	    batch.end();
 	}
+	// (this doesn't do anything if the scene pass was already ended above)
+	PassTimer.end(PassTimer.SCENE);
 
 	// swap the buffers of the window
+	PassTimer.begin(PassTimer.SWAP);
 	window.swapBuffers();
+	PassTimer.end(PassTimer.SWAP);
+
+	// the frame is done, so save how much work it took
+	FrameStats.endFrame();
+	PassTimer.endFrame();
+	AllocationTracker.checkFrame();
     }
 
     // close the game (and free up system resources)
     private void close() {
-	// actually closes the window
-	window.destroy();
+	// stop the simulation thread first (so it isn't ticking while everything is deleted)
+	if (simulation != null) {
+	    simulation.stop();
+	    System.out.println(simulation.report());
+	}
 
 	/*
 	 * delete all the buffers and the vertex array object to free up system
@@ -224,15 +448,39 @@ public class Main implements Runnable {
 	for (int i = 0; i < toRender.getMeshes().length; i++) {
 	    toRender.getMeshes()[i].destroy();
 	}
+	batch.destroy();
+	renderer.destroy();
+	indirectRenderer.destroy();
+	CameraBuffer.destroy();
+	PassTimer.destroy();
+	TextureAtlas.destroy();
+	TextureLoader.destroy();
 
 	/*
 	 * delete the program (the shaders when put together) to free up system
 	 * resources
 	 */
 	shader.destroy();
+	batchShader.destroy();
+	instancedShader.destroy();
+	indirectShader.destroy();
+
+	/*
+	 * actually closes the window
+	 * 
+	 * this has to happen last, since everything above needs the OpenGL
+	 * context that goes away with the window
+	 */
+	window.destroy();
     }
 
     public static void main(String args[]) {
+	/*
+	 * this has to happen before LWJGL allocates anything (check the
+	 * AllocationTracker class)
+	 */
+	AllocationTracker.configure();
+
 	/*
 	 * create an instance of the Main class and run the start function on it
 	 * 
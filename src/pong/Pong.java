@@ -3,6 +3,18 @@
  * 
  * this class holds data about the general status of the game at any given point
  * 
+ * it holds everything about the game (where the ball and the paddles are, how
+ * fast the ball is going, and how many lives everyone has), so the game can be
+ * run by the PongSimulation class without anything else. Everything is a
+ * primitive (apart from the random numbers, which are just one long inside a
+ * PongRandom), so a whole game is just one small object
+ * 
+ * the game also has its own random numbers, which start from a seed. Two games
+ * with the same seed that are given the same input every tick end up exactly
+ * the same, down to the last bit, on any computer (hash() can be used to check
+ * this). That's what makes it possible to replay a game from its seed and its
+ * inputs
+ * 
  * Aidin Yazdi
  */
 
@@ -29,8 +41,45 @@ public class Pong {
      */
     public int blueLives, redLives;
 
-    // the constructor
+    /*
+     * ballX/ballY - the center of the ball
+     * 
+     * ballSpeedX/ballSpeedY - how far the ball moves each tick
+     * 
+     * bluePaddleY/redPaddleY - the top of each paddle (the paddles only move
+     * up and down)
+     */
+    public float ballX, ballY, ballSpeedX, ballSpeedY, bluePaddleY, redPaddleY;
+
+    // how many times the game has been ticked
+    public long ticks;
+
+    // the seed the game started with
+    public long seed;
+
+    // the game's random numbers (like which way the ball is served)
+    public final PongRandom random = new PongRandom(0);
+
+    // the constructor (with a different seed every time)
     public Pong() {
+	this(System.nanoTime());
+    }
+
+    // the constructor (with a seed, for a game that can be played again exactly)
+    public Pong(long seed) {
+	reset(seed);
+    }
+
+    // start the same game again (with the same seed)
+    public void reset() {
+	reset(seed);
+    }
+
+    // start a new game with a new seed
+    public void reset(long seed) {
+	this.seed = seed;
+	random.seed(seed);
+
 	// initialize all the data about the game
 	blueWins = false;
 	redWins = false;
@@ -39,5 +88,68 @@ public class Pong {
 	paused = true;
 	blueLives = 3;
 	redLives = 3;
+
+	// the ball starts in the middle, and the paddles start halfway up
+	ballX = 0.0f;
+	ballY = 0.0f;
+	ballSpeedX = 0.0f;
+	ballSpeedY = 0.0f;
+	bluePaddleY = PongSimulation.PADDLE_LENGTH / 2.0f;
+	redPaddleY = PongSimulation.PADDLE_LENGTH / 2.0f;
+	ticks = 0;
+    }
+
+    // copy another game into this one
+    public void set(Pong other) {
+	blueWins = other.blueWins;
+	redWins = other.redWins;
+	bluePoint = other.bluePoint;
+	redPoint = other.redPoint;
+	paused = other.paused;
+	blueLives = other.blueLives;
+	redLives = other.redLives;
+	ballX = other.ballX;
+	ballY = other.ballY;
+	ballSpeedX = other.ballSpeedX;
+	ballSpeedY = other.ballSpeedY;
+	bluePaddleY = other.bluePaddleY;
+	redPaddleY = other.redPaddleY;
+	ticks = other.ticks;
+	seed = other.seed;
+	random.setState(other.random.getState());
+    }
+
+    /*
+     * a hash of everything about the game
+     * 
+     * two games with the same hash are (almost certainly) exactly the same.
+     * The floats are hashed by their bits, so a difference in the very last
+     * bit of a position still changes the hash. This uses the FNV-1a method on
+     * each field in a fixed order
+     */
+    public long hash() {
+	long hash = 0xCBF29CE484222325L;
+	hash = mix(hash, (blueWins ? 1 : 0) | (redWins ? 2 : 0) | (bluePoint ? 4 : 0) | (redPoint ? 8 : 0)
+		| (paused ? 16 : 0));
+	hash = mix(hash, blueLives);
+	hash = mix(hash, redLives);
+	hash = mix(hash, Float.floatToRawIntBits(ballX));
+	hash = mix(hash, Float.floatToRawIntBits(ballY));
+	hash = mix(hash, Float.floatToRawIntBits(ballSpeedX));
+	hash = mix(hash, Float.floatToRawIntBits(ballSpeedY));
+	hash = mix(hash, Float.floatToRawIntBits(bluePaddleY));
+	hash = mix(hash, Float.floatToRawIntBits(redPaddleY));
+	hash = mix(hash, ticks);
+	hash = mix(hash, random.getState());
+	return hash;
+    }
+
+    // add one value to a hash (check hash())
+    private static long mix(long hash, long value) {
+	for (int i = 0; i < 64; i += 8) {
+	    hash ^= (value >>> i) & 0xFF;
+	    hash *= 0x100000001B3L;
+	}
+	return hash;
     }
 }
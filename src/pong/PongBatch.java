@@ -0,0 +1,177 @@
+/*
+ * the PongBatch class
+ *
+ * this class plays a lot of games of pong without a window (two computer
+ * players against each other) as fast as it can, and then prints how long it
+ * took. It's for trying out changes to the rules (like how fast the ball
+ * speeds up) over thousands of games
+ *
+ * it's run with: java pong.PongBatch [games] [mode] [seed]
+ *
+ * "mode" is how the games are played:
+ *
+ * "step" - tick the game one tick at a time, like when it's being drawn (the
+ * default)
+ *
+ * "events" - jump from one event to the next (check PongSimulation.advance()),
+ * which is a lot faster
+ *
+ * with the same seed (0 by default), the same games are played every time, on
+ * any computer. The checksum at the end (a hash of how every game ended) is
+ * the same too, so it can be compared to check that a change to the code
+ * didn't change how the games play out
+ *
+ * Aidin Yazdi
+ */
+
+package pong;
+
+public class PongBatch {
+    /*
+     * the furthest from the middle of its paddle each computer player tries
+     * to hit the ball (so that the ball doesn't just go straight back and
+     * forth forever), and how close is close enough for it to stop moving
+     */
+    private static final float AIM = PongSimulation.PADDLE_LENGTH * 0.75f, CLOSE = PongSimulation.PADDLE_LENGTH * 0.1f;
+
+    // the longest a game can go on before it's given up on (in ticks)
+    private static final float MAX_GAME_LENGTH = 1000000.0f;
+
+    // where each computer player wants the middle of its paddle to be
+    private static float blueTarget, redTarget;
+
+    // used to pick where the computer players aim
+    private static PongRandom random = new PongRandom(0);
+
+    public static void main(String[] args) {
+	int games = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+	String mode = (args.length > 1) ? args[1] : "step";
+	long seed = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+	if (!mode.equals("step") && !mode.equals("events")) {
+	    System.err.println("there's no mode called \"" + mode + "\" (it can be \"step\" or \"events\")");
+	    return;
+	}
+
+	Pong game = new Pong();
+	PongSimulation simulation = new PongSimulation();
+	PongInput input = new PongInput();
+	long points = 0, steps = 0, unfinished = 0, checksum = 0;
+	double ticks = 0;
+	random.seed(seed);
+
+	long start = System.nanoTime();
+	for (int i = 0; i < games; i++) {
+	    // every game gets its own seed (so each one can be played again by itself)
+	    game.reset(seed + i);
+	    blueTarget = 0.0f;
+	    redTarget = 0.0f;
+	    float time = 0.0f;
+	    int lives = game.blueLives + game.redLives;
+	    while (!game.blueWins && !game.redWins && time < MAX_GAME_LENGTH) {
+		float speedX = game.ballSpeedX;
+		float limit = play(game, input);
+		if (mode.equals("events")) {
+		    time += simulation.advance(game, input, limit);
+		} else {
+		    simulation.step(game, input);
+		    time += 1.0f;
+		}
+		steps++;
+
+		// decide where to go every time the ball turns around
+		if (Math.signum(game.ballSpeedX) != Math.signum(speedX)) {
+		    aim(game);
+		}
+	    }
+	    points += lives - (game.blueLives + game.redLives);
+	    checksum = (checksum * 31) + game.hash();
+	    ticks += time;
+	    if (!game.blueWins && !game.redWins) {
+		unfinished++;
+	    }
+	}
+	double seconds = (System.nanoTime() - start) / 1000000000.0;
+
+	System.out.println(String.format("%d games (%s mode) in %.3f seconds", games, mode, seconds));
+	System.out.println(String.format("%d points, %.0f ticks of play, %d steps (%.1f ticks per step)", points,
+		ticks, steps, ticks / steps));
+	System.out.println(String.format("%.0f points per second, %.0f ticks of play per second", points / seconds,
+		ticks / seconds));
+	System.out.println(String.format("checksum: %016x", checksum));
+	if (unfinished > 0) {
+	    System.out.println(unfinished + " games went on too long and were given up on");
+	}
+    }
+
+    /*
+     * decide where both computer players want their paddles to be
+     *
+     * the player the ball is coming towards works out where the ball will be
+     * when it reaches their paddle (bouncing off the walls on the way), and
+     * picks a random spot on the paddle to hit it with. The other player goes
+     * back to the middle
+     */
+    private static void aim(Pong game) {
+	float offset = (random.nextFloat() * 2.0f - 1.0f) * AIM;
+	if (game.ballSpeedX < 0.0f) {
+	    blueTarget = reachable(predict(game, PongSimulation.BLUE_PADDLE_X + PongSimulation.PADDLE_WIDTH) + offset);
+	    redTarget = 0.0f;
+	} else if (game.ballSpeedX > 0.0f) {
+	    blueTarget = 0.0f;
+	    redTarget = reachable(predict(game, PongSimulation.RED_PADDLE_X) + offset);
+	}
+    }
+
+    // the closest place to "target" that the middle of a paddle can actually get to
+    private static float reachable(float target) {
+	float half = PongSimulation.PADDLE_LENGTH / 2.0f;
+	return Math.max(PongSimulation.BOTTOM_WALL + half, Math.min(PongSimulation.TOP_WALL - half, target));
+    }
+
+    /*
+     * where (up and down) the center of the ball will be when it gets to
+     * "paddleX"
+     *
+     * bouncing between the walls is the same as going straight through them
+     * into mirror images of the court, so this goes straight there and then
+     * folds the answer back into the court
+     */
+    private static float predict(Pong game, float paddleX) {
+	float bottom = PongSimulation.BOTTOM_WALL + PongSimulation.BALL_RADIUS,
+		height = (PongSimulation.TOP_WALL - PongSimulation.BALL_RADIUS) - bottom;
+	float time = (paddleX - game.ballX) / game.ballSpeedX;
+	float y = (game.ballY + (game.ballSpeedY * time) - bottom) % (2.0f * height);
+	if (y < 0.0f) {
+	    y += 2.0f * height;
+	}
+	return bottom + ((y > height) ? (2.0f * height) - y : y);
+    }
+
+    /*
+     * decide what both computer players press (each one moves its paddle
+     * towards where it wants to be, and always serves)
+     *
+     * this returns how long (in ticks) until they might want to change their
+     * minds, for the event mode
+     */
+    private static float play(Pong game, PongInput input) {
+	input.serve = true;
+	float blueDistance = blueTarget - (game.bluePaddleY - (PongSimulation.PADDLE_LENGTH / 2.0f));
+	float redDistance = redTarget - (game.redPaddleY - (PongSimulation.PADDLE_LENGTH / 2.0f));
+	input.blueUp = blueDistance > CLOSE;
+	input.blueDown = blueDistance < -CLOSE;
+	input.redUp = redDistance > CLOSE;
+	input.redDown = redDistance < -CLOSE;
+
+	// check again when a paddle gets where it wants to be (but not more than once a tick)
+	return Math.max(1.0f, Math.min(catchUpTime(blueDistance), catchUpTime(redDistance)));
+    }
+
+    // how long until a paddle that's "distance" away from where it's aiming gets close enough
+    private static float catchUpTime(float distance) {
+	if (Math.abs(distance) <= CLOSE) {
+	    return Float.POSITIVE_INFINITY;
+	}
+	return (Math.abs(distance) - CLOSE) / PongSimulation.PADDLE_SPEED;
+    }
+}
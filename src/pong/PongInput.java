@@ -0,0 +1,59 @@
+/*
+ * the PongInput class
+ *
+ * this class holds what the players are pressing during one tick of the game
+ *
+ * the simulation (check the PongSimulation class) never reads the keyboard by
+ * itself - whoever ticks the game fills one of these in first. That way the
+ * game can also be played by something that isn't a keyboard (like a test, or
+ * a recording of an old game)
+ *
+ * the same object can be filled in and used again every tick
+ *
+ * getBits() and setBits() turn what's being pressed into a single number and
+ * back, so a whole game can be saved as its seed and one number per tick
+ * (check the Pong class)
+ *
+ * Aidin Yazdi
+ */
+
+package pong;
+
+public class PongInput {
+    /*
+     * blueUp/blueDown - the blue (left) player is moving their paddle up or
+     * down (W and S on the keyboard)
+     * 
+     * redUp/redDown - the red (right) player is moving their paddle up or
+     * down (the up and down arrow keys)
+     * 
+     * serve - someone wants to start the next point (the space bar)
+     */
+    public boolean blueUp, blueDown, redUp, redDown, serve;
+
+    // let go of everything
+    public void clear() {
+	blueUp = false;
+	blueDown = false;
+	redUp = false;
+	redDown = false;
+	serve = false;
+    }
+
+    /*
+     * everything that's being pressed as one number (one bit for each key).
+     * This is how the inputs of a game can be saved, to replay it later
+     */
+    public int getBits() {
+	return (blueUp ? 1 : 0) | (blueDown ? 2 : 0) | (redUp ? 4 : 0) | (redDown ? 8 : 0) | (serve ? 16 : 0);
+    }
+
+    // press whatever getBits() says was being pressed
+    public void setBits(int bits) {
+	blueUp = (bits & 1) != 0;
+	blueDown = (bits & 2) != 0;
+	redUp = (bits & 4) != 0;
+	redDown = (bits & 8) != 0;
+	serve = (bits & 16) != 0;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * the PongRandom class
+ *
+ * this class makes random numbers for the game (like which way the ball is
+ * served)
+ *
+ * unlike java.util.Random, the numbers it makes only depend on the seed it
+ * was given - the same seed always gives the same numbers, in the same order,
+ * on every computer. It also never makes any new objects, and its whole state
+ * is one long, so it can be saved and copied along with the rest of the game
+ * (check the Pong class)
+ *
+ * it uses the "SplitMix64" method: the state goes up by the same large odd
+ * number each time, and the result is that state scrambled by a few shifts
+ * and multiplications
+ *
+ * Aidin Yazdi
+ */
+
+package pong;
+
+public class PongRandom {
+    // how much the state goes up by each time (this is 2^64 divided by the golden ratio)
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    // the state (everything about what the next number will be)
+    private long state;
+
+    // the constructor
+    public PongRandom(long seed) {
+	this.state = seed;
+    }
+
+    // start over from a seed
+    public void seed(long seed) {
+	state = seed;
+    }
+
+    // the next random long (every possible long is equally likely)
+    public long nextLong() {
+	state += GAMMA;
+	long z = state;
+	z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+	z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+	return z ^ (z >>> 31);
+    }
+
+    // the next random boolean
+    public boolean nextBoolean() {
+	return nextLong() < 0;
+    }
+
+    // the next random float from 0 (included) to 1 (not included)
+    public float nextFloat() {
+	// the top 24 bits fit in a float exactly
+	return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    // the following methods are getters and setters
+    public long getState() {
+	return state;
+    }
+
+    public void setState(long state) {
+	this.state = state;
+    }
+}
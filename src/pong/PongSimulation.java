@@ -0,0 +1,551 @@
+/*
+ * the PongSimulation class
+ *
+ * this class has all the rules of the game
+ *
+ * every tick, step() takes what the players are pressing (a PongInput) and
+ * moves the game (a Pong) forward by one tick: the ball moves and bounces off
+ * the walls and the paddles, points are scored, and the paddles move. It
+ * doesn't use OpenGL or GLFW and doesn't make any new objects, so it can be
+ * run without a window, and very quickly (millions of ticks per second) - for
+ * example to play a lot of games in a row
+ *
+ * the only randomness (which way the ball is served) comes from the game's own
+ * random numbers, and everything else is done in a fixed order, so the same
+ * seed and the same inputs always play out exactly the same way (check the
+ * Pong class)
+ *
+ * the game used to be updated by the ToRender class, which moved the meshes
+ * directly. Now ToRender just steps the simulation and then draws everything
+ * wherever the Pong object says it is
+ *
+ * the ball is moved with "continuous" collision detection: instead of moving
+ * the ball a whole tick and then checking if it's inside something (which
+ * misses things once the ball moves further than a paddle is wide in one
+ * tick), it works out exactly when during the tick the ball will first touch
+ * a wall, a paddle, or a goal line (the "time of impact"), moves it there,
+ * bounces it, and then does the same thing with the rest of the tick. So the
+ * ball can bounce more than once in a tick, and it's never drawn inside a wall.
+ * This also means the game works the same at any tick rate (or ball speed)
+ *
+ * there's also an "event" mode (check advance()), which doesn't tick at all.
+ * Between bounces the ball just moves in a straight line, and the paddles move
+ * at a constant speed, so instead of moving everything a tick at a time it
+ * works out when the next thing will happen (the ball touches something, or a
+ * paddle reaches a wall) and jumps straight there. The players only get to
+ * change what they're pressing at those points. This is much faster than
+ * ticking (a whole rally only takes a few steps), so it's good for playing a
+ * huge number of games when nobody is watching (check the PongBatch class)
+ *
+ * Aidin Yazdi
+ */
+
+package pong;
+
+/*
+ * since Java 17, all floating point math is strict (every computer gets
+ * exactly the same answer, down to the last bit), so the games play out the
+ * same everywhere without having to ask for it
+ */
+public class PongSimulation {
+    /*
+     * the size of the ball and the paddles (the same as the standard sizes in
+     * the Circle and Rectangle classes)
+     */
+    public static final float BALL_RADIUS = 0.00000035f, PADDLE_LENGTH = 0.000002f, PADDLE_WIDTH = 0.0000005f;
+
+    // the left side of each paddle
+    public static final float BLUE_PADDLE_X = -0.000015f, RED_PADDLE_X = 0.000015f - PADDLE_WIDTH;
+
+    /*
+     * the walls: the ball bounces off the bottom of the top wall and the top of
+     * the bottom wall, and the paddles can't go past them either
+     */
+    public static final float TOP_WALL = 0.000007f - 0.0000003f, BOTTOM_WALL = -0.00000849f;
+
+    // the highest the top of a paddle can ever be (the top of the top wall)
+    public static final float PADDLE_CEILING = 0.000007f;
+
+    // how far left or right the ball has to go for a point to be scored
+    public static final float GOAL = 0.0000157f;
+
+    /*
+     * how fast the ball is served, how fast the paddles move, how much the
+     * ball speeds up when it hits a paddle (and the fastest it can go before it
+     * stops speeding up), and how much hitting the ball away from the middle of
+     * a paddle changes its vertical speed
+     */
+    public static final float SERVE_SPEED = 0.125f * 0.000001f, PADDLE_SPEED = 0.00000025f,
+	    BALL_SPEED_INCREASE = 0.000000005f, MAX_BALL_SPEED = 0.0000004f, BALL_SPEED_MODIFIER = 0.12f;
+
+    /*
+     * how many ticks there are in one second of play. All the speeds above are
+     * per tick at this rate, so a game that is ticked at a different rate has
+     * to move each tick by "TICK_RATE / its tick rate" ticks (check step())
+     */
+    public static final float TICK_RATE = 60.0f;
+
+    /*
+     * the fastest the ball can move up or down. Without this, a ball stuck
+     * between the end of a paddle and a wall gets faster every time it bounces
+     * off the paddle. When ticking, it soon uses up all of its MAX_BOUNCES
+     * every tick without getting anywhere (so the game freezes), and in the
+     * event mode every one of those bounces is its own event
+     */
+    public static final float MAX_VERTICAL_SPEED = 0.000001f;
+
+    // the most times the ball can bounce in one tick (so it can't get stuck bouncing forever)
+    public static final int MAX_BOUNCES = 8;
+
+    /*
+     * the shortest time (in ticks) one step of the event mode can take. A ball
+     * squeezed between a paddle and a wall would otherwise bounce back and
+     * forth without any time going by at all
+     */
+    public static final float MIN_EVENT_TIME = 0.001f;
+
+    // the different things the ball can run into (check findImpact())
+    public static final int NOTHING = 0, WALL = 1, BLUE_PADDLE = 2, RED_PADDLE = 3, BLUE_GOAL = 4, RED_GOAL = 5;
+
+    /*
+     * the result of the last findImpact(): what the ball runs into, when (in
+     * ticks from now), and which way the surface it touches is facing (the
+     * "normal", pointing away from the surface towards the ball)
+     */
+    private int impact;
+    private float impactTime, normalX, normalY;
+
+    /*
+     * how fast each paddle is moving while the ball moves (these are only set
+     * during step() and advance(), and are 0 the rest of the time)
+     */
+    private float bluePaddleSpeed, redPaddleSpeed;
+
+    /*
+     * move the game forward by one tick
+     *
+     * while the game is paused (before every point), nothing moves until
+     * someone presses serve. Once someone has won, the game stays paused
+     */
+    public void step(Pong game, PongInput input) {
+	step(game, input, 1.0f);
+    }
+
+    /*
+     * move the game forward by "span" ticks at once (with the same input the
+     * whole time)
+     *
+     * the paddles move at a steady speed through the whole step, and the ball
+     * is moved along with them, bouncing off anything it runs into on the way
+     * (including a paddle that moves into it). This can be used to run the
+     * game at a lower tick rate (like 4 ticks at once for 15 ticks per second
+     * instead of 60) when nobody is watching
+     *
+     * it isn't exactly the same as ticking "span" times though. The paddles
+     * can only change direction once per step, so the players (or whatever is
+     * playing) get fewer chances to react. A paddle that reaches a wall part of
+     * the way through a step is moved as if it had gone a bit slower the whole
+     * way instead of stopping. And the ball can only bounce MAX_BOUNCES times
+     * per step, however long the step is
+     */
+    public void step(Pong game, PongInput input, float span) {
+	game.ticks++;
+
+	if (game.paused) {
+	    if (!game.blueWins && !game.redWins && input.serve) {
+		game.paused = false;
+	    }
+	    return;
+	}
+
+	// if the ball isn't moving horizontally, serve it to a random side
+	if (game.ballSpeedX == 0) {
+	    game.ballSpeedX = game.random.nextBoolean() ? SERVE_SPEED : -SERVE_SPEED;
+	}
+
+	// where the paddles end up, and how fast they get there
+	float bluePaddleEnd = game.bluePaddleY + paddleMovement(game.bluePaddleY, input.blueUp, input.blueDown, span);
+	float redPaddleEnd = game.redPaddleY + paddleMovement(game.redPaddleY, input.redUp, input.redDown, span);
+	if (span > 0.0f) {
+	    bluePaddleSpeed = (bluePaddleEnd - game.bluePaddleY) / span;
+	    redPaddleSpeed = (redPaddleEnd - game.redPaddleY) / span;
+	}
+
+	/*
+	 * move the ball and the paddles for the whole step, bouncing the ball off
+	 * whatever it runs into
+	 */
+	float time = span;
+	for (int i = 0; i < MAX_BOUNCES && time > 0.0f; i++) {
+	    if (findImpact(game, time) == NOTHING) {
+		moveBall(game, time);
+		break;
+	    }
+	    moveBall(game, impactTime);
+	    game.bluePaddleY += bluePaddleSpeed * impactTime;
+	    game.redPaddleY += redPaddleSpeed * impactTime;
+	    time -= impactTime;
+	    if (resolveImpact(game)) {
+		// a point was scored
+		break;
+	    }
+	}
+
+	// the paddles always finish the step exactly where they were going
+	game.bluePaddleY = bluePaddleEnd;
+	game.redPaddleY = redPaddleEnd;
+	bluePaddleSpeed = 0.0f;
+	redPaddleSpeed = 0.0f;
+    }
+
+    /*
+     * move the game forward to the next event (the event mode - check the
+     * comment at the top), but by no more than "limit" ticks
+     *
+     * the paddles move at a constant speed the whole time, based on what the
+     * players are pressing now. The next event is whichever of these happens
+     * first: the ball touches a wall, a paddle, or a goal line, a paddle
+     * reaches a wall (and stops), or "limit" runs out. Whoever is playing
+     * should call this again with their new input after every event (and can
+     * use "limit" to get a chance to change their mind sooner)
+     *
+     * this returns how many ticks went by. While the game is paused, the time
+     * just goes by (unless serve is pressed, which unpauses the game right
+     * away and returns 0). This doesn't change game.ticks - the caller knows
+     * how much time went by
+     */
+    public float advance(Pong game, PongInput input, float limit) {
+	if (game.paused) {
+	    if (!game.blueWins && !game.redWins && input.serve) {
+		game.paused = false;
+		return 0.0f;
+	    }
+	    return limit;
+	}
+
+	// if the ball isn't moving horizontally, serve it to a random side
+	if (game.ballSpeedX == 0) {
+	    game.ballSpeedX = game.random.nextBoolean() ? SERVE_SPEED : -SERVE_SPEED;
+	}
+
+	// how fast the paddles move, and when they'll reach a wall
+	bluePaddleSpeed = paddleSpeed(game.bluePaddleY, input.blueUp, input.blueDown);
+	redPaddleSpeed = paddleSpeed(game.redPaddleY, input.redUp, input.redDown);
+	limit = Math.min(limit, paddleStopTime(game.bluePaddleY, bluePaddleSpeed));
+	limit = Math.min(limit, paddleStopTime(game.redPaddleY, redPaddleSpeed));
+
+	// jump to the next event
+	findImpact(game, limit);
+	float time = Math.min(limit, Math.max(impactTime, MIN_EVENT_TIME));
+	moveBall(game, time);
+	game.bluePaddleY = movePaddle(game.bluePaddleY, bluePaddleSpeed, time);
+	game.redPaddleY = movePaddle(game.redPaddleY, redPaddleSpeed, time);
+	resolveImpact(game);
+
+	bluePaddleSpeed = 0.0f;
+	redPaddleSpeed = 0.0f;
+	return time;
+    }
+
+    /*
+     * how fast a paddle (with its top at paddleY) moves in the event mode
+     *
+     * a paddle can't move up once its top reaches the bottom of the top wall,
+     * or down once its bottom reaches the top of the bottom wall (this is
+     * within one tick's movement of where ticking stops them)
+     */
+    private static float paddleSpeed(float paddleY, boolean up, boolean down) {
+	float speed = 0.0f;
+	if (up && paddleY < TOP_WALL) {
+	    speed += PADDLE_SPEED;
+	}
+	if (down && paddleY > (BOTTOM_WALL + PADDLE_LENGTH)) {
+	    speed -= PADDLE_SPEED;
+	}
+	return speed;
+    }
+
+    // how many ticks until a paddle (moving at "speed") reaches a wall
+    private static float paddleStopTime(float paddleY, float speed) {
+	if (speed > 0.0f) {
+	    return (TOP_WALL - paddleY) / speed;
+	} else if (speed < 0.0f) {
+	    return ((BOTTOM_WALL + PADDLE_LENGTH) - paddleY) / speed;
+	}
+	return Float.POSITIVE_INFINITY;
+    }
+
+    // where a paddle is after moving for "time" ticks (it stops at the walls)
+    private static float movePaddle(float paddleY, float speed, float time) {
+	paddleY += speed * time;
+	if (speed > 0.0f) {
+	    return Math.min(paddleY, TOP_WALL);
+	} else if (speed < 0.0f) {
+	    return Math.max(paddleY, BOTTOM_WALL + PADDLE_LENGTH);
+	}
+	return paddleY;
+    }
+
+    // move the ball in a straight line for "time" ticks
+    private static void moveBall(Pong game, float time) {
+	game.ballX += game.ballSpeedX * time;
+	game.ballY += game.ballSpeedY * time;
+    }
+
+    /*
+     * work out the first thing the ball will run into within the next "limit"
+     * ticks if it keeps going in a straight line (and the paddles keep moving
+     * at bluePaddleSpeed and redPaddleSpeed)
+     *
+     * this returns what it runs into (NOTHING if it doesn't run into anything
+     * in time), and sets impactTime, normalX, and normalY
+     */
+    public int findImpact(Pong game, float limit) {
+	float x = game.ballX, y = game.ballY, speedX = game.ballSpeedX, speedY = game.ballSpeedY;
+	impact = NOTHING;
+	impactTime = limit;
+
+	// the walls (the ball touches them when its edge reaches them)
+	if (speedY > 0.0f) {
+	    setImpact(WALL, Math.max(0.0f, (TOP_WALL - BALL_RADIUS - y) / speedY), 0.0f, -1.0f);
+	} else if (speedY < 0.0f) {
+	    setImpact(WALL, Math.max(0.0f, (BOTTOM_WALL + BALL_RADIUS - y) / speedY), 0.0f, 1.0f);
+	}
+
+	// the goal lines (a point is scored when the center of the ball crosses them)
+	if (speedX < 0.0f) {
+	    setImpact(BLUE_GOAL, Math.max(0.0f, (-GOAL - x) / speedX), 1.0f, 0.0f);
+	} else if (speedX > 0.0f) {
+	    setImpact(RED_GOAL, Math.max(0.0f, (GOAL - x) / speedX), -1.0f, 0.0f);
+	}
+
+	/*
+	 * the paddles (a moving paddle is checked from its own point of view,
+	 * where it's standing still and the ball moves a little bit differently)
+	 */
+	sweepPaddle(BLUE_PADDLE, x, y, speedX, speedY - bluePaddleSpeed, BLUE_PADDLE_X, game.bluePaddleY);
+	sweepPaddle(RED_PADDLE, x, y, speedX, speedY - redPaddleSpeed, RED_PADDLE_X, game.redPaddleY);
+
+	return impact;
+    }
+
+    // remember an impact if it happens before the one we already have
+    private void setImpact(int what, float time, float normalX, float normalY) {
+	if (time < impactTime) {
+	    impact = what;
+	    impactTime = time;
+	    this.normalX = normalX;
+	    this.normalY = normalY;
+	}
+    }
+
+    /*
+     * check when the ball first touches a paddle (with its left side at
+     * paddleX and its top at paddleY)
+     *
+     * the ball touches the paddle when its center is within BALL_RADIUS of the
+     * paddle. That area is the paddle made bigger by BALL_RADIUS on every side,
+     * with rounded corners - so the center of the ball is checked against each
+     * of the four sides (moved out by BALL_RADIUS) and each of the four corner
+     * circles. Only sides the ball is moving towards (and is still outside of)
+     * count, so a ball that was just bounced off a side can't hit it again
+     */
+    private void sweepPaddle(int paddle, float x, float y, float speedX, float speedY, float paddleX,
+	    float paddleY) {
+	float left = paddleX, right = paddleX + PADDLE_WIDTH, top = paddleY, bottom = paddleY - PADDLE_LENGTH;
+
+	// the left and right sides
+	if (speedX > 0.0f && x <= left - BALL_RADIUS) {
+	    float time = (left - BALL_RADIUS - x) / speedX, hitY = y + (speedY * time);
+	    if (hitY >= bottom && hitY <= top) {
+		setImpact(paddle, time, -1.0f, 0.0f);
+	    }
+	} else if (speedX < 0.0f && x >= right + BALL_RADIUS) {
+	    float time = (right + BALL_RADIUS - x) / speedX, hitY = y + (speedY * time);
+	    if (hitY >= bottom && hitY <= top) {
+		setImpact(paddle, time, 1.0f, 0.0f);
+	    }
+	}
+
+	// the top and bottom
+	if (speedY < 0.0f && y >= top + BALL_RADIUS) {
+	    float time = (top + BALL_RADIUS - y) / speedY, hitX = x + (speedX * time);
+	    if (hitX >= left && hitX <= right) {
+		setImpact(paddle, time, 0.0f, 1.0f);
+	    }
+	} else if (speedY > 0.0f && y <= bottom - BALL_RADIUS) {
+	    float time = (bottom - BALL_RADIUS - y) / speedY, hitX = x + (speedX * time);
+	    if (hitX >= left && hitX <= right) {
+		setImpact(paddle, time, 0.0f, -1.0f);
+	    }
+	}
+
+	// the corners
+	sweepCorner(paddle, x, y, speedX, speedY, left, top);
+	sweepCorner(paddle, x, y, speedX, speedY, right, top);
+	sweepCorner(paddle, x, y, speedX, speedY, left, bottom);
+	sweepCorner(paddle, x, y, speedX, speedY, right, bottom);
+    }
+
+    /*
+     * check when the ball first touches a corner of a paddle (when its center
+     * is BALL_RADIUS away from the corner)
+     *
+     * the center of the ball is at (x + speedX * t, y + speedY * t), so this
+     * solves a quadratic equation for the first t where its distance to the
+     * corner is BALL_RADIUS
+     */
+    private void sweepCorner(int paddle, float x, float y, float speedX, float speedY, float cornerX,
+	    float cornerY) {
+	float differenceX = x - cornerX, differenceY = y - cornerY;
+	float a = (speedX * speedX) + (speedY * speedY);
+	float b = (differenceX * speedX) + (differenceY * speedY);
+	float c = (differenceX * differenceX) + (differenceY * differenceY) - (BALL_RADIUS * BALL_RADIUS);
+
+	// the ball has to be outside of the corner and moving towards it
+	if (c < 0.0f || b >= 0.0f) {
+	    return;
+	}
+	float discriminant = (b * b) - (a * c);
+	if (discriminant < 0.0f) {
+	    return;
+	}
+	float time = (-b - (float) Math.sqrt(discriminant)) / a;
+	if (time < impactTime) {
+	    setImpact(paddle, time, (differenceX + (speedX * time)) / BALL_RADIUS,
+		    (differenceY + (speedY * time)) / BALL_RADIUS);
+	}
+    }
+
+    /*
+     * do whatever should happen now that the ball is touching the thing
+     * findImpact() found
+     *
+     * this returns true if a point was scored (the ball is then back in the
+     * middle and the game is paused)
+     */
+    public boolean resolveImpact(Pong game) {
+	switch (impact) {
+	case WALL:
+	    game.ballSpeedY = -game.ballSpeedY;
+	    return false;
+	case BLUE_PADDLE:
+	    bounce(game, game.bluePaddleY, bluePaddleSpeed, 1.0f);
+	    return false;
+	case RED_PADDLE:
+	    bounce(game, game.redPaddleY, redPaddleSpeed, -1.0f);
+	    return false;
+	case BLUE_GOAL:
+	    game.blueLives -= 1;
+	    game.redPoint = true;
+	    if (game.blueLives == 0) {
+		game.redWins = true;
+	    }
+	    resetBall(game);
+	    return true;
+	case RED_GOAL:
+	    game.redLives -= 1;
+	    game.bluePoint = true;
+	    if (game.redLives == 0) {
+		game.blueWins = true;
+	    }
+	    resetBall(game);
+	    return true;
+	default:
+	    return false;
+	}
+    }
+
+    // put the ball back in the middle and pause the game (after a point)
+    private static void resetBall(Pong game) {
+	game.paused = true;
+	game.ballX = 0.0f;
+	game.ballY = 0.0f;
+	game.ballSpeedX = 0.0f;
+	game.ballSpeedY = 0.0f;
+    }
+
+    /*
+     * bounce the ball off a paddle (with its top at paddleY, moving at
+     * paddleSpeed)
+     *
+     * the ball is reflected off the side of the paddle it touched (from the
+     * paddle's point of view, so a moving paddle can't catch up with the ball
+     * and hit it again straight away). If it hit
+     * the front (or back) of the paddle, it speeds up a little bit, and if it
+     * hit the top or bottom, it gets an extra push away from the paddle (like
+     * the paddle knocked it). Either way, the further the ball is from the
+     * middle of the paddle, the more its vertical movement changes (up to
+     * MAX_VERTICAL_SPEED)
+     *
+     * a bounce off a corner (or the top or bottom) can leave the ball moving
+     * almost straight up or down, so it would never leave the paddle's column.
+     * So afterwards the ball always goes left or right at least as fast as a
+     * serve, away from the paddle ("towardsCourt" is which way the court is
+     * from the paddle: 1 for the blue paddle and -1 for the red one)
+     */
+    private void bounce(Pong game, float paddleY, float paddleSpeed, float towardsCourt) {
+	float towards = (game.ballSpeedX * normalX) + ((game.ballSpeedY - paddleSpeed) * normalY);
+	game.ballSpeedX -= 2.0f * towards * normalX;
+	game.ballSpeedY -= 2.0f * towards * normalY;
+
+	if (Math.abs(normalX) >= Math.abs(normalY)) {
+	    if (Math.abs(game.ballSpeedX) < MAX_BALL_SPEED) {
+		game.ballSpeedX += (normalX > 0.0f) ? BALL_SPEED_INCREASE : -BALL_SPEED_INCREASE;
+	    }
+	    deflect(game, game.ballY, paddleY, 0.0f);
+	} else {
+	    deflect(game, game.ballY, paddleY, PADDLE_SPEED);
+	}
+	game.ballSpeedY = Math.max(-MAX_VERTICAL_SPEED, Math.min(MAX_VERTICAL_SPEED, game.ballSpeedY));
+
+	if (Math.abs(game.ballSpeedX) < SERVE_SPEED) {
+	    float away = (normalX != 0.0f) ? Math.signum(normalX) : towardsCourt;
+	    game.ballSpeedX = away * SERVE_SPEED;
+	}
+    }
+
+    /*
+     * how far a paddle (with its top at paddleY) moves in "span" ticks
+     *
+     * the paddle moves if its key is pressed (unless it's already at a wall),
+     * and then it's pushed back so that it doesn't go past the walls
+     */
+    private static float paddleMovement(float paddleY, boolean up, boolean down, float span) {
+	float paddleBottom = paddleY - PADDLE_LENGTH;
+	float movement = 0.0f;
+	if (up && !(paddleY >= TOP_WALL)) {
+	    movement += PADDLE_SPEED * span;
+	}
+	if (down && !(paddleY <= (BOTTOM_WALL + PADDLE_LENGTH))) {
+	    movement -= PADDLE_SPEED * span;
+	}
+
+	/*
+	 * only push the paddle back if it would actually be past a wall after
+	 * this tick's movement
+	 */
+	paddleY += movement;
+	if (paddleY >= PADDLE_CEILING) {
+	    movement += PADDLE_CEILING - paddleY;
+	}
+	if ((paddleY - PADDLE_LENGTH) <= BOTTOM_WALL) {
+	    movement += BOTTOM_WALL - paddleBottom;
+	}
+	return movement;
+    }
+
+    /*
+     * if the ball is above or below the middle of the paddle, change its
+     * vertical movement correspondingly ("extra" is added on top of that)
+     */
+    private static void deflect(Pong game, float ballY, float paddleY, float extra) {
+	float distanceToCenter = ballY - (paddleY - (PADDLE_LENGTH / 2.0f));
+	float speedDifferential = extra + (BALL_SPEED_MODIFIER * Math.abs(distanceToCenter));
+	if (distanceToCenter < 0) {
+	    game.ballSpeedY -= speedDifferential;
+	} else if (distanceToCenter > 0) {
+	    game.ballSpeedY += speedDifferential;
+	}
+    }
+}